@@ -0,0 +1,203 @@
+package ooo.foooooooooooo.velocitydiscord;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerPing;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Pings backend servers to tell when they start and stop, without ever waiting on a ping
+ * <p>
+ * Every tick, each server that is due gets pinged after a random delay, so they don't all fire together. A server is
+ * only considered offline after several pings in a row failed, and offline servers are pinged less and less often.
+ */
+public class ServerHealthMonitor {
+  // pings are spread over this part of the interval
+  private static final double JITTER = 0.25;
+
+  private final Consumer<String> onOnline;
+  private final Consumer<String> onOffline;
+
+  // replaced as a whole with compute, ping callbacks for different servers come in on different threads
+  private final Map<String, Health> health = new ConcurrentHashMap<>();
+
+  public ServerHealthMonitor(Consumer<String> onOnline, Consumer<String> onOffline) {
+    this.onOnline = onOnline;
+    this.onOffline = onOffline;
+  }
+
+  /**
+   * Start pinging the servers that are due, returns right away
+   */
+  public void tick() {
+    var interval = intervalMillis();
+    var now = System.currentTimeMillis();
+
+    for (var server : VelocityDiscord.SERVER.getAllServers()) {
+      var name = server.getServerInfo().getName();
+      if (VelocityDiscord.CONFIG.serverDisabled(name)) continue;
+
+      var claimed = new boolean[1];
+
+      this.health.compute(name, (k, health) -> {
+        if (health == null) health = Health.UNKNOWN;
+
+        // ticks can be a bit early, half an interval of slack keeps a server from skipping one
+        if (health.pinging || now + interval / 2 < health.nextPingAt) return health;
+
+        claimed[0] = true;
+        return health.pinging(now);
+      });
+
+      if (!claimed[0]) continue;
+
+      var jitter = ThreadLocalRandom.current().nextLong(Math.max(1, (long) (interval * JITTER)));
+
+      VelocityDiscord.SERVER
+        .getScheduler()
+        .buildTask(VelocityDiscord.getInstance(), () -> ping(server))
+        .delay(jitter, TimeUnit.MILLISECONDS)
+        .schedule();
+    }
+  }
+
+  public VelocityListener.ServerState state(String server) {
+    var health = this.health.get(server);
+    return health == null ? VelocityListener.ServerState.empty() : health.state;
+  }
+
+  /**
+   * @return the last successful ping while the server counts as online, null if it's offline or wasn't pinged yet
+   */
+  @Nullable
+  public ServerPing lastPing(String server) {
+    var health = this.health.get(server);
+    return health == null ? null : health.lastPing;
+  }
+
+  /**
+   * @return whether enough pings failed to say the server is offline, servers that weren't pinged yet aren't
+   */
+  public boolean knownOffline(String server) {
+    var health = this.health.get(server);
+    return health != null && health.known && !health.state.online;
+  }
+
+  /**
+   * A player got onto the server, so it's definitely online
+   */
+  public void markOnline(String server) {
+    var started = new boolean[1];
+
+    this.health.compute(server, (k, health) -> {
+      if (health == null) health = Health.UNKNOWN;
+      if (health.state.online) return health;
+
+      started[0] = true;
+
+      var state = new VelocityListener.ServerState(true, health.state.players, health.state.maxPlayers);
+      return new Health(state, health.lastPing, true, 0, health.nextPingAt, health.pingedAt, health.pinging);
+    });
+
+    if (started[0]) this.onOnline.accept(server);
+  }
+
+  private void ping(RegisteredServer server) {
+    var name = server.getServerInfo().getName();
+
+    try {
+      server.ping().whenComplete((ping, ex) -> onPing(name, ping, ex));
+    } catch (Exception e) {
+      onPing(name, null, e);
+    }
+  }
+
+  private void onPing(String server, ServerPing ping, Throwable ex) {
+    var interval = intervalMillis();
+    var threshold = Math.max(1, VelocityDiscord.CONFIG.PING_FAILURES);
+    var maxBackoff = Math.max(interval, VelocityDiscord.CONFIG.PING_MAX_BACKOFF_SECONDS * 1000L);
+
+    var transition = new Transition[]{Transition.NONE};
+
+    this.health.compute(server, (k, health) -> {
+      if (health == null) health = Health.UNKNOWN;
+
+      var next = health.pingedAt + interval;
+
+      if (ex == null && ping != null) {
+        var players = 0;
+        var maxPlayers = 0;
+
+        if (ping.getPlayers().isPresent()) {
+          players = ping.getPlayers().get().getOnline();
+          maxPlayers = ping.getPlayers().get().getMax();
+        }
+
+        // the first result only tells what the state is, it's not a change
+        if (health.known && !health.state.online) transition[0] = Transition.ONLINE;
+
+        var state = new VelocityListener.ServerState(true, players, maxPlayers);
+        return new Health(state, ping, true, 0, next, 0, false);
+      }
+
+      var failures = health.failures + 1;
+
+      // a few dropped pings in a row are needed before a server counts as stopped
+      if (failures < threshold) {
+        return new Health(health.state, health.lastPing, health.known, failures, next, 0, false);
+      }
+
+      if (health.state.online) transition[0] = Transition.OFFLINE;
+
+      // back off while it stays offline, doubling up to the configured maximum
+      var backoff = interval << Math.min(failures - threshold, 16);
+      next = health.pingedAt + Math.min(backoff, maxBackoff);
+
+      return new Health(VelocityListener.ServerState.empty(), null, true, failures, next, 0, false);
+    });
+
+    switch (transition[0]) {
+      case ONLINE -> this.onOnline.accept(server);
+      case OFFLINE -> this.onOffline.accept(server);
+      case NONE -> {}
+    }
+  }
+
+  private static long intervalMillis() {
+    return Math.max(1, VelocityDiscord.CONFIG.PING_INTERVAL_SECONDS) * 1000L;
+  }
+
+  private enum Transition {
+    NONE,
+    ONLINE,
+    OFFLINE
+  }
+
+  /**
+   * @param lastPing  kept while the server is online, so others can use it instead of pinging again
+   * @param known     whether there was a result yet, unknown servers count as offline but don't announce changes
+   * @param failures  pings in a row that failed
+   * @param pingedAt  when the ping in flight was started
+   */
+  private record Health(
+    VelocityListener.ServerState state,
+    @Nullable ServerPing lastPing,
+    boolean known,
+    int failures,
+    long nextPingAt,
+    long pingedAt,
+    boolean pinging
+  ) {
+    private static final Health UNKNOWN =
+      new Health(VelocityListener.ServerState.empty(), null, false, 0, 0, 0, false);
+
+    private Health pinging(long now) {
+      return new Health(this.state, this.lastPing, this.known, this.failures, this.nextPingAt, now, true);
+    }
+  }
+}
@@ -102,6 +102,10 @@ public class VelocityDiscord {
     return instance.luckPerms;
   }
 
+  public Path getDataDirectory() {
+    return this.dataDirectory;
+  }
+
   @Subscribe
   public void onProxyInitialization(ProxyInitializeEvent event) {
     if (this.listener != null) {
@@ -202,6 +206,9 @@ public class VelocityDiscord {
 
   private void tryStartPingScheduler() {
     if (CONFIG.PING_INTERVAL_SECONDS > 0 || this.pingScheduler != null) {
+      // the interval may have changed, don't leave the old task running next to the new one
+      if (this.pingScheduler != null) this.pingScheduler.cancel();
+
       this.pingScheduler = SERVER.getScheduler().buildTask(
         this, () -> {
           if (this.listener != null) this.listener.checkServerHealth();
@@ -219,10 +226,15 @@ public class VelocityDiscord {
       interval = 10;
     }
 
+    // the interval may have changed, don't leave the old task running next to the new one
+    if (this.topicScheduler != null) this.topicScheduler.cancel();
+
+    var spreadMillis = TimeUnit.MINUTES.toMillis(interval);
+
     this.topicScheduler = SERVER.getScheduler().buildTask(
       this, () -> {
-        LOGGER.debug("Updating channel topic");
-        if (this.discord != null) this.discord.updateChannelTopic();
+        LOGGER.debug("Updating channel topics");
+        if (this.discord != null) this.discord.updateChannelTopics(spreadMillis);
       }
     ).repeat(interval, TimeUnit.MINUTES).schedule();
 
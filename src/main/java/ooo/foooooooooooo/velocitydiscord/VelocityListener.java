@@ -7,24 +7,27 @@ import com.velocitypowered.api.event.player.ServerConnectedEvent;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
 import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
-import com.velocitypowered.api.proxy.server.ServerPing;
 import com.velocitypowered.api.event.PostOrder;
 import ooo.foooooooooooo.velocitydiscord.discord.Discord;
+import ooo.foooooooooooo.velocitydiscord.util.OrderedExecutor;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class VelocityListener {
   private final Discord discord;
   private final PlainTextComponentSerializer textSerializer = PlainTextComponentSerializer.plainText();
 
-  private final Map<String, ServerState> serverState = new HashMap<>();
+  private final ServerHealthMonitor health = new ServerHealthMonitor(this::onServerOnline, this::onServerOffline);
 
-  private boolean firstHealthCheck = true;
+  // chat is processed here instead of on velocity's event threads, which every plugin shares
+  private final OrderedExecutor chatExecutor = new OrderedExecutor(
+    "velocity-discord-chat",
+    2,
+    () -> VelocityDiscord.CONFIG.getDiscordConfig().OUTBOUND.CHAT_QUEUE_SIZE
+  );
 
   public VelocityListener(Discord discord) {
     this.discord = discord;
@@ -44,14 +47,27 @@ public class VelocityListener {
       return;
     }
 
-    var username = event.getPlayer().getUsername();
-    var uuid = event.getPlayer().getUniqueId();
-    var prefix = getPrefix(uuid);
-    
-    // Получаем сообщение
-    var message = event.getMessage();
+    var player = event.getPlayer();
+    var chat = new ChatMessage(player.getUsername(), player.getUniqueId(), server, event.getMessage());
+
+    // messages for the same channel have to stay in order, different channels don't care
+    var serverConfig = VelocityDiscord.CONFIG.getServerConfig(server);
+    var channel =
+      serverConfig.getDiscordChatConfig().MESSAGE_CHANNEL.orElse(serverConfig.getDiscordConfig().MAIN_CHANNEL_ID);
+
+    if (!this.chatExecutor.execute(channel, () -> sendChat(chat))) {
+      VelocityDiscord.LOGGER.warn(
+        "Chat queue is full ({} waiting), dropped message from {}",
+        this.chatExecutor.pendingCount(),
+        chat.username
+      );
+    }
+  }
 
-    this.discord.onPlayerChat(username, uuid.toString(), prefix, server, message);
+  private void sendChat(ChatMessage chat) {
+    var prefix = getPrefix(chat.uuid);
+
+    this.discord.onPlayerChat(chat.username, chat.uuid.toString(), prefix, chat.server, chat.message);
   }
 
   @Subscribe
@@ -116,6 +132,8 @@ public class VelocityListener {
 
   @Subscribe
   public void onProxyShutdown(ProxyShutdownEvent event) {
+    // last chat messages go out before the stop message
+    this.chatExecutor.shutdown(5, TimeUnit.SECONDS);
     this.discord.onProxyShutdown();
   }
 
@@ -148,82 +166,31 @@ public class VelocityListener {
   }
 
   /**
-   * Ping all servers and update online state
+   * Ping the servers that are due and update their online state once the pings come back
    */
   public void checkServerHealth() {
-    var servers = VelocityDiscord.SERVER.getAllServers();
-
-    CompletableFuture
-      .allOf(servers
-        .parallelStream()
-        .map((server) -> server.ping().handle((ping, ex) -> handlePing(server, ping, ex)))
-        .toArray(CompletableFuture[]::new))
-      .join();
-
-    this.firstHealthCheck = false;
+    this.health.tick();
   }
 
-  private CompletableFuture<Void> handlePing(RegisteredServer server, ServerPing ping, Throwable ex) {
-    var name = server.getServerInfo().getName();
-
-    if (VelocityDiscord.CONFIG.serverDisabled(name)) {
-      return CompletableFuture.completedFuture(null);
-    }
-
-    var state = this.serverState.getOrDefault(name, ServerState.empty());
-
-    if (ex != null || ping == null) {
-      if (state.online) {
-        if (!this.firstHealthCheck) {
-          onServerOffline(name);
-        }
-        state.online = false;
-        this.serverState.put(name, state);
-      }
-
-      return CompletableFuture.completedFuture(null);
-    }
-
-    if (!state.online && !this.firstHealthCheck) {
-      onServerOnline(name);
-    }
-
-    var players = 0;
-    var maxPlayers = 0;
-
-    if (ping.getPlayers().isPresent()) {
-      players = ping.getPlayers().get().getOnline();
-      maxPlayers = ping.getPlayers().get().getMax();
-    }
-
-    state.online = true;
-    state.players = players;
-    state.maxPlayers = maxPlayers;
-
-    this.serverState.put(name, state);
-
-    return CompletableFuture.completedFuture(null);
+  public ServerHealthMonitor getHealthMonitor() {
+    return this.health;
   }
 
   public ServerState getServerState(RegisteredServer server) {
-    var name = server.getServerInfo().getName();
-    return this.serverState.getOrDefault(name, ServerState.empty());
+    return this.health.state(server.getServerInfo().getName());
   }
 
   private void setServerOnline(String server) {
-    var state = this.serverState.getOrDefault(server, ServerState.empty());
-
-    if (!state.online) {
-      onServerOnline(server);
-      state.online = true;
-      this.serverState.put(server, state);
-    }
+    this.health.markOnline(server);
   }
 
+  private record ChatMessage(String username, UUID uuid, String server, String message) {}
+
+  // never changed once created, the health monitor swaps in a new one
   public static class ServerState {
-    public boolean online;
-    public int players;
-    public int maxPlayers;
+    public final boolean online;
+    public final int players;
+    public final int maxPlayers;
 
     public ServerState(boolean online, int players, int maxPlayers) {
       this.online = online;
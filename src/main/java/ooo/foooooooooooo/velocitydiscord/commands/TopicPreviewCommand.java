@@ -25,9 +25,16 @@ public final class TopicPreviewCommand {
       return 0;
     }
 
-    var topic = discord.generateChannelTopic();
+    // servers without a recent ping may take a few seconds, reply when they're done instead of holding the command
+    discord.generateChannelTopic().whenComplete((topic, error) -> {
+      if (error != null) {
+        VelocityDiscord.LOGGER.error("Failed to generate channel topic", error);
+        source.getSource().sendPlainMessage("Failed to generate channel topic: " + error.getMessage());
+        return;
+      }
 
-    source.getSource().sendPlainMessage("Generated channel topic: \n\n" + topic + "\n");
+      source.getSource().sendPlainMessage("Generated channel topic: \n\n" + topic + "\n");
+    });
 
     return Command.SINGLE_SUCCESS;
   }
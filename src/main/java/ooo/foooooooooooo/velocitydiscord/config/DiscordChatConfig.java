@@ -138,6 +138,21 @@ public class DiscordChatConfig extends Config {
   @Key("server_stop.channel")
   public Optional<String> SERVER_STOP_CHANNEL = Optional.empty();
 
+  // join/leave storms
+  @Key("storm.threshold")
+  public int STORM_THRESHOLD = 0;
+  @Key("storm.window")
+  public int STORM_WINDOW_SECONDS = 10;
+  @Key("storm.settle")
+  public int STORM_SETTLE_SECONDS = 15;
+  @Key("storm.join_format")
+  public Optional<String> STORM_JOIN_FORMAT = Optional.of("**{count} players joined {server}**");
+  @Key("storm.leave_format")
+  public Optional<String> STORM_LEAVE_FORMAT = Optional.of("**{count} players left {server}**");
+  @Key("storm.server_switch_format")
+  public Optional<String> STORM_SERVER_SWITCH_FORMAT =
+    Optional.of("**{count} players moved from {previous} to {current}**");
+
   @SuppressWarnings("unused")
   public DiscordChatConfig(com.electronwill.nightconfig.core.Config config) {
     super(config);
@@ -160,6 +175,19 @@ public class DiscordChatConfig extends Config {
     }).anyMatch(t -> t == UserMessageType.WEBHOOK);
   }
 
+  public boolean stormDetectionEnabled() {
+    return this.STORM_THRESHOLD > 0;
+  }
+
+  public Optional<String> getStormFormat(MessageCategory category) {
+    return switch (category) {
+      case JOIN -> this.STORM_JOIN_FORMAT;
+      case LEAVE, DISCONNECT -> this.STORM_LEAVE_FORMAT;
+      case SERVER_SWITCH -> this.STORM_SERVER_SWITCH_FORMAT;
+      default -> Optional.empty();
+    };
+  }
+
   public WebhookConfig getWebhookConfig(MessageCategory category) {
     return switch (category) {
       case MESSAGE -> this.MESSAGE_WEBHOOK;
@@ -169,6 +197,8 @@ public class DiscordChatConfig extends Config {
       case LEAVE -> this.LEAVE_WEBHOOK;
       case DISCONNECT -> this.DISCONNECT_WEBHOOK;
       case SERVER_SWITCH -> this.SERVER_SWITCH_WEBHOOK;
+      // server messages can't be sent through webhooks
+      case SERVER_START, SERVER_STOP, PROXY_START, PROXY_STOP -> null;
     };
   }
 
@@ -191,6 +221,7 @@ public class DiscordChatConfig extends Config {
   }
 
   public enum MessageCategory {
-    MESSAGE, DEATH, ADVANCEMENT, JOIN, LEAVE, DISCONNECT, SERVER_SWITCH,
+    MESSAGE, DEATH, ADVANCEMENT, JOIN, LEAVE, DISCONNECT, SERVER_SWITCH, SERVER_START, SERVER_STOP, PROXY_START,
+    PROXY_STOP,
   }
 }
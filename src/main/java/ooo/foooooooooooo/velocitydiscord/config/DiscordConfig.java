@@ -2,6 +2,7 @@ package ooo.foooooooooooo.velocitydiscord.config;
 
 import ooo.foooooooooooo.config.Config;
 import ooo.foooooooooooo.config.Key;
+import ooo.foooooooooooo.config.Variants;
 import ooo.foooooooooooo.velocitydiscord.config.commands.ListCommandConfig;
 
 import java.util.Optional;
@@ -22,6 +23,20 @@ public class DiscordConfig extends Config {
   public Boolean ENABLE_MENTIONS = true;
   @Key("enable_everyone_and_here")
   public Boolean ENABLE_EVERYONE_AND_HERE = false;
+  @Key("escape_markdown")
+  public Boolean ESCAPE_MARKDOWN = false;
+
+  // members
+  @Key(value = "member_cache.mode", overridable = false)
+  public MemberCacheMode MEMBER_CACHE_MODE = MemberCacheMode.FULL;
+  @Key(value = "member_cache.size", overridable = false)
+  public int MEMBER_CACHE_SIZE = 10000;
+  @Key(value = "member_cache.unknown_mentions", overridable = false)
+  public UnknownMentionPolicy UNKNOWN_MENTIONS = UnknownMentionPolicy.LOOKUP;
+
+  // "@name" completions sent to players, most recently active members first
+  @Key(value = "chat_completions", overridable = false)
+  public int CHAT_COMPLETIONS_MAX = 200;
 
   // bot activity
   @Key(value = "activity_format", overridable = false)
@@ -39,6 +54,10 @@ public class DiscordConfig extends Config {
   @Key("commands.list")
   public ListCommandConfig COMMANDS_LIST;
 
+  // outbound message handling
+  @Key("outbound")
+  public OutboundConfig OUTBOUND;
+
   // channel topic
   @Key("channel_topic.format")
   public Optional<String> TOPIC_FORMAT = Optional.of("""
@@ -63,6 +82,10 @@ public class DiscordConfig extends Config {
   @Key("channel_topic.player_list_max_count")
   public int TOPIC_PLAYER_LIST_MAX_COUNT = 10;
 
+  public boolean leanMemberCache() {
+    return this.MEMBER_CACHE_MODE == MemberCacheMode.LEAN;
+  }
+
   public boolean updateChannelTopicDisabled() {
     return this.UPDATE_CHANNEL_TOPIC_INTERVAL_MINUTES == 0;
   }
@@ -80,4 +103,22 @@ public class DiscordConfig extends Config {
   public boolean isDefaultValues() {
     return this.DISCORD_TOKEN.equals(DefaultToken) || this.MAIN_CHANNEL_ID.equals(DefaultChannelId);
   }
+
+  @Variants
+  public enum MemberCacheMode {
+    @Variants.Key("full")
+    FULL,
+    @Variants.Key("lean")
+    LEAN
+  }
+
+  @Variants
+  public enum UnknownMentionPolicy {
+    @Variants.Key("ignore")
+    IGNORE,
+    @Variants.Key("lookup")
+    LOOKUP,
+    @Variants.Key("wait")
+    WAIT
+  }
 }
@@ -19,6 +19,10 @@ public class MinecraftConfig extends Config {
   @Key(value = "plugin_command", overridable = false)
   public String PLUGIN_COMMAND = "discord";
 
+  // discord messages waiting to be shown in game before new ones are dropped, 0 is unbounded
+  @Key(value = "inbound_queue_size", overridable = false)
+  public int INBOUND_QUEUE_SIZE = 10000;
+
   // formats
   @Key("discord_chunk")
   public String DISCORD_CHUNK_FORMAT = "<dark_gray>[<{discord_color}>Discord<dark_gray>]<reset>";
@@ -0,0 +1,77 @@
+package ooo.foooooooooooo.velocitydiscord.config;
+
+import ooo.foooooooooooo.config.Config;
+import ooo.foooooooooooo.config.Key;
+import ooo.foooooooooooo.config.Variants;
+
+public class OutboundConfig extends Config {
+  // merge messages sent to the same channel within this window, 0 disables batching
+  @Key(value = "batch_window", overridable = false)
+  public int BATCH_WINDOW_MILLIS = 0;
+
+  // backlog shedding, 0 disables
+  @Key(value = "max_backlog_age", overridable = false)
+  public int MAX_BACKLOG_AGE_SECONDS = 0;
+  @Key(value = "chat_backlog_policy", overridable = false)
+  public BacklogPolicy CHAT_BACKLOG_POLICY = BacklogPolicy.DROP_OLDEST;
+  @Key(value = "collapse_join_leave", overridable = false)
+  public Boolean COLLAPSE_JOIN_LEAVE = true;
+
+  // chat messages waiting to be processed before new ones are dropped, 0 is unbounded
+  @Key(value = "chat_queue_size", overridable = false)
+  public int CHAT_QUEUE_SIZE = 10000;
+
+  // messages kept in memory until the bot is ready, 0 is unbounded
+  @Key(value = "pre_ready.capacity", overridable = false)
+  public int PRE_READY_CAPACITY = 5000;
+  @Key(value = "pre_ready.chat_overflow", overridable = false)
+  public OverflowPolicy PRE_READY_CHAT_OVERFLOW = OverflowPolicy.DROP_OLDEST;
+  @Key(value = "pre_ready.event_overflow", overridable = false)
+  public OverflowPolicy PRE_READY_EVENT_OVERFLOW = OverflowPolicy.DROP_NEWEST;
+
+  // on-disk spool for messages that can't be sent yet, 0 disables
+  @Key(value = "spool.retention", overridable = false)
+  public int SPOOL_RETENTION_MINUTES = 0;
+  @Key(value = "spool.segment_size", overridable = false)
+  public int SPOOL_SEGMENT_SIZE_KB = 1024;
+  @Key(value = "spool.sync_interval", overridable = false)
+  public int SPOOL_SYNC_INTERVAL_MILLIS = 1000;
+
+  @SuppressWarnings("unused")
+  public OutboundConfig(com.electronwill.nightconfig.core.Config config) {
+    super(config);
+  }
+
+  @SuppressWarnings("unused")
+  public OutboundConfig(com.electronwill.nightconfig.core.Config config, OutboundConfig main) {
+    super(config, main);
+  }
+
+  public boolean batchingEnabled() {
+    return this.BATCH_WINDOW_MILLIS > 0;
+  }
+
+  public boolean sheddingEnabled() {
+    return this.MAX_BACKLOG_AGE_SECONDS > 0;
+  }
+
+  public boolean spoolEnabled() {
+    return this.SPOOL_RETENTION_MINUTES > 0;
+  }
+
+  @Variants
+  public enum OverflowPolicy {
+    @Variants.Key("drop_newest")
+    DROP_NEWEST,
+    @Variants.Key("drop_oldest")
+    DROP_OLDEST
+  }
+
+  @Variants
+  public enum BacklogPolicy {
+    @Variants.Key("keep")
+    KEEP,
+    @Variants.Key("drop_oldest")
+    DROP_OLDEST
+  }
+}
@@ -5,6 +5,8 @@ import com.electronwill.nightconfig.core.file.FileConfig;
 import ooo.foooooooooooo.config.Config;
 import ooo.foooooooooooo.config.Key;
 import ooo.foooooooooooo.velocitydiscord.Constants;
+import ooo.foooooooooooo.velocitydiscord.util.ComponentTemplate;
+import ooo.foooooooooooo.velocitydiscord.util.Template;
 import org.slf4j.Logger;
 
 import javax.annotation.Nullable;
@@ -26,6 +28,10 @@ public class PluginConfig extends Config implements ServerConfig {
   public boolean EXCLUDED_SERVERS_RECEIVE_MESSAGES = false;
   @Key("ping_interval")
   public int PING_INTERVAL_SECONDS = 15;
+  @Key("ping_failures")
+  public int PING_FAILURES = 3;
+  @Key("ping_max_backoff")
+  public int PING_MAX_BACKOFF_SECONDS = 300;
 
   @Key("discord")
   public DiscordConfig DISCORD;
@@ -187,6 +193,10 @@ public class PluginConfig extends Config implements ServerConfig {
     this.serverOverridesMap.clear();
     this.EXCLUDED_SERVERS.clear();
 
+    // formats may have changed, compiled templates get rebuilt on first use
+    Template.clearCache();
+    ComponentTemplate.clearCache();
+
     this.setInner(PluginConfig.loadFile(this.dataDir));
 
     try {
@@ -248,6 +258,13 @@ public class PluginConfig extends Config implements ServerConfig {
     return this;
   }
 
+  /**
+   * Names of the servers that have an override section, they don't have to be registered with the proxy
+   */
+  public Set<String> getOverriddenServers() {
+    return Collections.unmodifiableSet(this.serverOverridesMap.keySet());
+  }
+
   @Override
   public DiscordConfig getDiscordConfig() {
     return this.DISCORD;
@@ -2,11 +2,14 @@ package ooo.foooooooooooo.velocitydiscord.config;
 
 import ooo.foooooooooooo.config.Config;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.TreeMap;
 
 public class RolePrefixConfig extends Config {
-  private final Map<String, String> rolePrefixes = new HashMap<>();
+  private static final Index EMPTY = new Index(new long[0], new String[0]);
+
+  // swapped as a whole on reload, so a lookup never sees the ids of one load and the prefixes of another
+  private volatile Index index = EMPTY;
 
   public RolePrefixConfig(com.electronwill.nightconfig.core.Config config) {
     super(config);
@@ -18,21 +21,42 @@ public class RolePrefixConfig extends Config {
 
   @Override
   public void loadConfig() {
-    this.rolePrefixes.clear();
+    if (this.inner == null) {
+      this.index = EMPTY;
+      return;
+    }
 
-    if (this.inner == null) return;
+    var rolePrefixes = new TreeMap<Long, String>();
 
     var prefixConfig = this.inner.get("minecraft.role_prefixes");
     if (prefixConfig instanceof com.electronwill.nightconfig.core.Config roleConfig) {
       for (var entry : roleConfig.entrySet()) {
-        if (entry.getValue() instanceof String) {
-          this.rolePrefixes.put(entry.getKey(), entry.getValue());
+        if (!(entry.getValue() instanceof String prefix)) continue;
+
+        // role ids are snowflakes, anything else can never match a role
+        try {
+          rolePrefixes.put(Long.parseLong(entry.getKey()), prefix);
+        } catch (NumberFormatException ignored) {
         }
       }
     }
+
+    this.index = new Index(
+      rolePrefixes.keySet().stream().mapToLong(Long::longValue).toArray(),
+      rolePrefixes.values().toArray(String[]::new)
+    );
   }
 
-  public String getPrefixForRole(String roleId) {
-    return this.rolePrefixes.getOrDefault(roleId, "");
+  public boolean isEmpty() {
+    return this.index.roleIds.length == 0;
   }
+
+  public String getPrefixForRole(long roleId) {
+    var index = this.index;
+    var i = Arrays.binarySearch(index.roleIds, roleId);
+    return i >= 0 ? index.prefixes[i] : "";
+  }
+
+  // sorted role ids and their prefixes, looked up with a binary search for every role of a message author
+  private record Index(long[] roleIds, String[] prefixes) {}
 }
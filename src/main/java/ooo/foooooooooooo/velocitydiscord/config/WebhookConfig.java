@@ -3,6 +3,8 @@ package ooo.foooooooooooo.velocitydiscord.config;
 import ooo.foooooooooooo.config.Config;
 import ooo.foooooooooooo.config.Key;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 
 public class WebhookConfig extends Config {
@@ -10,12 +12,18 @@ public class WebhookConfig extends Config {
 
   @Key("url")
   public String URL = "";
+  // more webhooks in the same channel, messages get spread over url and these
+  @Key("pool")
+  public List<String> POOL = new ArrayList<>();
   @Key("avatar_url")
   public String AVATAR_URL = "https://visage.surgeplay.com/face/96/{uuid}";
   @Key("username")
   public String USERNAME = "{username}";
 
   public String webhookId = null;
+  // url first, then every valid pool url
+  public List<String> urls = List.of();
+  public List<String> webhookIds = List.of();
 
   @SuppressWarnings("unused")
   public WebhookConfig(com.electronwill.nightconfig.core.Config config) {
@@ -41,9 +49,34 @@ public class WebhookConfig extends Config {
 
       this.webhookId = null;
     }
+
+    var urls = new ArrayList<String>();
+    var ids = new ArrayList<String>();
+
+    if (this.webhookId != null) {
+      urls.add(this.URL);
+      ids.add(this.webhookId);
+    }
+
+    for (var url : this.POOL) {
+      var poolMatcher = WEBHOOK_URL_REGEX.matcher(url);
+      if (!poolMatcher.matches()) {
+        this.getLogger().warn("Invalid webhook URL in pool: {}", url);
+        continue;
+      }
+
+      if (ids.contains(poolMatcher.group(1))) continue;
+
+      urls.add(url);
+      ids.add(poolMatcher.group(1));
+    }
+
+    this.urls = List.copyOf(urls);
+    this.webhookIds = List.copyOf(ids);
   }
 
+  // a pool without a url is enough, all that matters is that there is something to send to
   public boolean invalid() {
-    return this.URL.isEmpty() || this.webhookId == null;
+    return this.urls.isEmpty();
   }
 }
@@ -0,0 +1,82 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Keeps the "@name" chat completions of online players in sync with the {@link MemberIndex}
+ * <p>
+ * Every player gets the full list once, after that only the names that were added or removed are sent.
+ */
+public class ChatCompletions {
+  private final Function<String, List<String>> completions;
+  private final Map<UUID, Sent> players = new HashMap<>();
+
+  /**
+   * @param completions current completions of a server, the same instance as long as they didn't change
+   */
+  public ChatCompletions(Function<String, List<String>> completions) {
+    this.completions = completions;
+  }
+
+  /**
+   * A player joined or moved to another server, which might use another chat channel
+   */
+  public synchronized void update(Recipient player, String server) {
+    update(player, server, this.completions.apply(server));
+  }
+
+  public synchronized void remove(UUID player) {
+    this.players.remove(player);
+  }
+
+  /**
+   * Send the changes since the last update to everyone, called whenever the member index publishes
+   */
+  public synchronized void refresh() {
+    this.players.values().removeIf(sent -> !sent.player.isActive());
+
+    for (var sent : List.copyOf(this.players.values())) {
+      update(sent.player, sent.server, this.completions.apply(sent.server));
+    }
+  }
+
+  private void update(Recipient player, String server, List<String> completions) {
+    var previous = this.players.get(player.id());
+
+    if (previous == null) {
+      if (!completions.isEmpty()) player.addCompletions(completions);
+    } else if (previous.completions != completions) {
+      var removed = new HashSet<>(previous.completions);
+      completions.forEach(removed::remove);
+
+      var added = new HashSet<>(completions);
+      previous.completions.forEach(added::remove);
+
+      if (!removed.isEmpty()) player.removeCompletions(removed);
+      if (!added.isEmpty()) player.addCompletions(added);
+    }
+
+    this.players.put(player.id(), new Sent(player, server, completions));
+  }
+
+  /**
+   * The player side of the completions, a Velocity player outside of tests
+   */
+  public interface Recipient {
+    UUID id();
+
+    boolean isActive();
+
+    void addCompletions(Collection<String> completions);
+
+    void removeCompletions(Collection<String> completions);
+  }
+
+  private record Sent(Recipient player, String server, List<String> completions) {}
+}
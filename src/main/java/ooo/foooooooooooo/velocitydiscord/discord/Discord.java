@@ -1,103 +1,182 @@
 package ooo.foooooooooooo.velocitydiscord.discord;
 
 import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import com.velocitypowered.api.scheduler.ScheduledTask;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.entities.IncomingWebhookClient;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.WebhookClient;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.api.events.guild.override.GenericPermissionOverrideEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdatePermissionsEvent;
 import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.events.session.SessionDisconnectEvent;
+import net.dv8tion.jda.api.events.session.SessionRecreateEvent;
+import net.dv8tion.jda.api.events.session.SessionResumeEvent;
+import net.dv8tion.jda.api.events.user.update.UserUpdateNameEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.api.utils.ChunkingFilter;
 import net.dv8tion.jda.api.utils.MemberCachePolicy;
 import net.dv8tion.jda.api.utils.messages.MessageCreateBuilder;
 import net.dv8tion.jda.api.utils.messages.MessageCreateData;
+import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import ooo.foooooooooooo.velocitydiscord.ServerHealthMonitor;
 import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
 import ooo.foooooooooooo.velocitydiscord.config.DiscordChatConfig;
+import ooo.foooooooooooo.velocitydiscord.config.DiscordConfig;
 import ooo.foooooooooooo.velocitydiscord.config.ServerConfig;
 import ooo.foooooooooooo.velocitydiscord.config.WebhookConfig;
 import ooo.foooooooooooo.velocitydiscord.discord.commands.ICommand;
 import ooo.foooooooooooo.velocitydiscord.discord.commands.ListCommand;
 import ooo.foooooooooooo.velocitydiscord.discord.message.IQueuedMessage;
+import ooo.foooooooooooo.velocitydiscord.discord.message.MessageBatcher;
+import ooo.foooooooooooo.velocitydiscord.discord.message.OutboundScheduler;
+import ooo.foooooooooooo.velocitydiscord.discord.message.PreReadyQueue;
+import ooo.foooooooooooo.velocitydiscord.discord.message.Spool;
+import ooo.foooooooooooo.velocitydiscord.discord.message.StormDetector;
+import ooo.foooooooooooo.velocitydiscord.discord.message.TopicUpdater;
+import ooo.foooooooooooo.velocitydiscord.discord.message.WebhookPool;
+import ooo.foooooooooooo.velocitydiscord.util.OutboundSanitizer;
+import ooo.foooooooooooo.velocitydiscord.util.PatternTrie;
 import ooo.foooooooooooo.velocitydiscord.util.StringTemplate;
+import ooo.foooooooooooo.velocitydiscord.util.Template;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.util.*;
 import java.util.List;
-import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 public class Discord extends ListenerAdapter {
-  private static final Pattern EveryoneAndHerePattern = Pattern.compile("@(?<ping>everyone|here)");
-  private static final Pattern RawPingPattern = Pattern.compile("<@(?<ping>[!&]?\\d+)>");
+  private static final long MENTION_LOOKUP_TIMEOUT_MILLIS = 2000;
+  // all pings for one topic update share this deadline
+  private static final long TOPIC_PING_TIMEOUT_SECONDS = 5;
 
   private final MessageListener messageListener;
+  private final OutboundScheduler scheduler = new OutboundScheduler();
+  private final TopicUpdater topics = new TopicUpdater();
+  private final MessageBatcher batcher = new MessageBatcher((channel, message, priority) -> this.scheduler.submit(
+    channel.getIdLong(),
+    priority,
+    null,
+    null,
+    () -> channel.sendMessage(message)
+  ));
+  private final StormDetector storms = new StormDetector(this::sendStormSummary);
 
   private final Map<String, ICommand> commands = new HashMap<>();
-  private final HashMap<String, List<String>> mentionCompletions = new HashMap<>();
+  private final MemberIndex members = new MemberIndex(() -> this.completions.refresh());
+  private final ChatCompletions completions = new ChatCompletions(this.members::completions);
   private final HashMap<String, Channels> serverChannels = new HashMap<>();
 
-  private final Queue<IQueuedMessage> preReadyQueue = new ArrayDeque<>();
+  private final PreReadyQueue preReadyQueue = new PreReadyQueue();
 
-  private boolean ready = false;
+  private volatile boolean ready = false;
+  private volatile boolean connected = false;
+  // held for reading while a message is sent or queued, for writing while the queues are replayed
+  private final ReentrantReadWriteLock replayLock = new ReentrantReadWriteLock();
+
+  private Spool<IQueuedMessage> spool;
+  private ScheduledTask spoolSyncTask;
+  private boolean spoolFailed = false;
 
   private JDA jda;
 
   private String lastToken;
+  private DiscordConfig.MemberCacheMode lastMemberCacheMode;
 
   private TextChannel mainChannel;
   private TextChannel proxyStartChannel;
   private TextChannel proxyStopChannel;
   private Channels defaultChannels;
+  // swapped as a whole on reload, event handlers read it from any thread
+  private volatile RoutingTable routes;
+  // channels that get a topic, the main channel first, swapped as a whole on reload
+  private volatile List<TopicChannel> topicChannels = List.of();
 
   private int lastPlayerCount = -1;
 
   public Discord() {
-    this.messageListener = new MessageListener(this.serverChannels);
+    this.messageListener = new MessageListener();
 
     onConfigReload();
   }
 
   public void onConfigReload() {
+    // formats are needed before the bot is ready, channels are filled in once it is
+    compileRoutes();
+
     if (VelocityDiscord.CONFIG.getDiscordConfig().COMMANDS_LIST.DISCORD_LIST_ENABLED) {
       this.commands.put(ListCommand.COMMAND_NAME, new ListCommand());
     }
 
-    if (!VelocityDiscord.CONFIG.getDiscordConfig().DISCORD_TOKEN.equals(this.lastToken)) {
+    // the member cache mode is fixed for a session, so changing it needs a new one
+    if (!VelocityDiscord.CONFIG.getDiscordConfig().DISCORD_TOKEN.equals(this.lastToken)
+      || VelocityDiscord.CONFIG.getDiscordConfig().MEMBER_CACHE_MODE != this.lastMemberCacheMode) {
       if (this.jda != null) {
         shutdown();
       }
 
+      var lean = VelocityDiscord.CONFIG.getDiscordConfig().leanMemberCache();
+
       var builder = JDABuilder.createDefault(VelocityDiscord.CONFIG.getDiscordConfig().DISCORD_TOKEN)
         // this seems to download all users at bot startup and keep internal cache updated
         // without it, sometimes mentions miss when they shouldn't
-        .setChunkingFilter(ChunkingFilter.ALL)
+        // lean mode skips it and keeps its own bounded cache of members instead, see MemberIndex
+        .setChunkingFilter(lean ? ChunkingFilter.NONE : ChunkingFilter.ALL)
         .enableIntents(GatewayIntent.GUILD_MEMBERS, GatewayIntent.GUILD_MESSAGES, GatewayIntent.MESSAGE_CONTENT)
         // mentions always miss without this
-        .setMemberCachePolicy(MemberCachePolicy.ALL)
+        .setMemberCachePolicy(lean ? MemberCachePolicy.DEFAULT : MemberCachePolicy.ALL)
         .addEventListeners(this.messageListener, this);
 
       try {
         this.jda = builder.build();
         this.lastToken = VelocityDiscord.CONFIG.getDiscordConfig().DISCORD_TOKEN;
+        this.lastMemberCacheMode = VelocityDiscord.CONFIG.getDiscordConfig().MEMBER_CACHE_MODE;
       } catch (Exception e) {
         VelocityDiscord.LOGGER.error("Failed to login to discord:", e);
       }
     } else {
       // no ready event, just reload channels here
       loadChannels();
+
+      // indexes for unchanged channels are kept, they still need the new cache size and completion count
+      this.members.onConfigReload();
     }
   }
 
   public void shutdown() {
+    this.storms.flushAll();
+    this.batcher.flushAll();
+    this.scheduler.drainAll();
+    this.topics.cancelAll();
+    closeSpool();
+    this.members.shutdown();
+    this.messageListener.shutdown();
     this.jda.shutdown();
   }
 
@@ -113,13 +192,34 @@ public class Discord extends ListenerAdapter {
 
     loadChannels();
 
-    this.ready = true;
+    sendQueued();
+  }
 
-    for (var msg : this.preReadyQueue) {
-      msg.send(this);
+  @Override
+  public void onSessionDisconnect(@Nonnull SessionDisconnectEvent event) {
+    var lock = this.replayLock.writeLock();
+    lock.lock();
+
+    try {
+      this.connected = false;
+
+      var spool = getSpool();
+      if (spool != null) spool.reopen();
+    } finally {
+      lock.unlock();
     }
   }
 
+  @Override
+  public void onSessionResume(@Nonnull SessionResumeEvent event) {
+    sendQueued();
+  }
+
+  @Override
+  public void onSessionRecreate(@Nonnull SessionRecreateEvent event) {
+    sendQueued();
+  }
+
   private void loadChannels() {
     this.mainChannel = loadChannel(VelocityDiscord.CONFIG.getDiscordConfig().MAIN_CHANNEL_ID);
     this.proxyStartChannel =
@@ -137,17 +237,18 @@ public class Discord extends ListenerAdapter {
 
     this.defaultChannels = new Channels(this, "default", VelocityDiscord.CONFIG, this.mainChannel);
 
-    this.messageListener.onServerChannelsUpdated();
+    this.topicChannels = loadTopicChannels();
 
-    // Load all discord users in the channel and add them to MC client chat suggestions
-    this.mentionCompletions.clear();
+    compileRoutes();
+
+    this.messageListener.onServerChannelsUpdated(this.serverChannels);
+
+    // Load all discord users in the channel for mentions and MC client chat suggestions
+    var chatChannels = new HashMap<String, TextChannel>();
     for (var channels : this.serverChannels.values()) {
-      var members = channels.chatChannel.getMembers();
-      this.mentionCompletions.put(
-        channels.serverName,
-        members.stream().map((m -> "@" + m.getUser().getName())).toList()
-      );
+      chatChannels.put(channels.serverName, channels.chatChannel);
     }
+    this.members.rebuild(chatChannels);
 
     if (!this.commands.isEmpty()) {
       var guild = this.mainChannel.getGuild();
@@ -158,6 +259,80 @@ public class Discord extends ListenerAdapter {
     }
   }
 
+  @Override
+  public void onMessageReceived(@Nonnull MessageReceivedEvent event) {
+    if (!event.isFromGuild()) return;
+
+    // ranks completions by activity, and the gateway sends the author's member with every message, which is the
+    // cheapest way to fill the lean cache
+    var member = event.getMember();
+    if (member != null) {
+      this.members.onMessage(event.getChannel().getIdLong(), member);
+    }
+  }
+
+  @Override
+  public void onGuildMemberJoin(@Nonnull GuildMemberJoinEvent event) {
+    this.members.onMemberChanged(event.getMember());
+  }
+
+  @Override
+  public void onGuildMemberRemove(@Nonnull GuildMemberRemoveEvent event) {
+    this.members.onMemberRemoved(event.getGuild().getIdLong(), event.getUser().getIdLong());
+  }
+
+  @Override
+  public void onGuildMemberRoleAdd(@Nonnull GuildMemberRoleAddEvent event) {
+    this.members.onMemberChanged(event.getMember());
+  }
+
+  @Override
+  public void onGuildMemberRoleRemove(@Nonnull GuildMemberRoleRemoveEvent event) {
+    this.members.onMemberChanged(event.getMember());
+  }
+
+  @Override
+  public void onUserUpdateName(@Nonnull UserUpdateNameEvent event) {
+    this.members.onUserRenamed(event.getUser());
+  }
+
+  @Override
+  public void onRoleUpdatePermissions(@Nonnull RoleUpdatePermissionsEvent event) {
+    this.members.onPermissionsChanged(event.getGuild().getIdLong(), null, membersWithRole(event.getRole()));
+  }
+
+  @Override
+  public void onGenericPermissionOverride(@Nonnull GenericPermissionOverrideEvent event) {
+    List<Member> affected;
+
+    if (event.isRoleOverride()) {
+      affected = membersWithRole(event.getRole());
+    } else {
+      // a member JDA doesn't have cached isn't in the index either
+      var member = event.getMember();
+      affected = member == null ? List.of() : List.of(member);
+    }
+
+    this.members.onPermissionsChanged(event.getGuild().getIdLong(), event.getChannel().getIdLong(), affected);
+  }
+
+  // null for @everyone, every member has it without it being listed on them
+  @Nullable
+  private static List<Member> membersWithRole(@Nullable Role role) {
+    if (role == null || role.isPublicRole()) return null;
+
+    return role.getGuild().getMembersWithRoles(role);
+  }
+
+  private void compileRoutes() {
+    this.routes = RoutingTable.compile(
+      this.serverChannels,
+      this.defaultChannels,
+      this.proxyStartChannel,
+      this.proxyStopChannel
+    );
+  }
+
   @Override
   public void onSlashCommandInteraction(@Nonnull SlashCommandInteractionEvent event) {
     if (!this.ready) return;
@@ -177,85 +352,91 @@ public class Discord extends ListenerAdapter {
 
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
   public void onPlayerChat(String username, String uuid, Optional<String> prefix, String server, String content) {
-    var serverConfig = VelocityDiscord.CONFIG.getServerConfig(server);
-    var serverBotConfig = serverConfig.getDiscordConfig();
-    var serverDiscordConfig = serverConfig.getDiscordChatConfig();
+    var route = this.routes.get(server, DiscordChatConfig.MessageCategory.MESSAGE);
 
-    content = filterRawPings(content);
+    // before the mention lookup, which may wait on Discord for a message that is thrown away anyway
+    if (!route.enabled()) return;
 
-    if (serverBotConfig.ENABLE_MENTIONS) {
-      content = parseMentions(server, content);
-    }
+    var serverBotConfig = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordConfig();
+
+    var mentions = serverBotConfig.ENABLE_MENTIONS ? mentions(server, content) : null;
+    content = OutboundSanitizer.sanitize(
+      content,
+      mentions,
+      serverBotConfig.ENABLE_EVERYONE_AND_HERE,
+      serverBotConfig.ESCAPE_MARKDOWN
+    );
 
-    if (!serverBotConfig.ENABLE_EVERYONE_AND_HERE) {
-      content = filterEveryoneAndHere(content);
+    // webhooks ignore the format and send the message as is
+    if (route.type() == DiscordChatConfig.UserMessageType.WEBHOOK) {
+      sendWebhookMessage(uuid, username, server, content, DiscordChatConfig.MessageCategory.MESSAGE);
+      return;
     }
 
-    if (serverDiscordConfig.MESSAGE_FORMAT.isPresent()) {
-      var message = new StringTemplate(serverDiscordConfig.MESSAGE_FORMAT.get())
-        .add("username", username)
-        .add("server", VelocityDiscord.CONFIG.serverName(server))
-        .add("message", content)
-        .add("prefix", prefix.orElse(""))
-        .toString();
+    var message = new StringTemplate(route.format())
+      .add("username", username)
+      .add("server", VelocityDiscord.CONFIG.serverName(server))
+      .add("message", content)
+      .add("prefix", prefix.orElse(""))
+      .toString();
 
-      var targetChannel = getServerChannels(server).chatChannel;
-      switch (serverDiscordConfig.MESSAGE_TYPE) {
-        case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.MESSAGE_EMBED_COLOR);
-        case TEXT -> sendMessage(targetChannel, message);
-        case WEBHOOK -> sendWebhookMessage(uuid, username, server, content, DiscordChatConfig.MessageCategory.MESSAGE);
-        default -> throw new IllegalArgumentException("Unexpected value: " + serverDiscordConfig.MESSAGE_TYPE);
-      }
-    }
+    send(server, route, DiscordChatConfig.MessageCategory.MESSAGE, message, uuid, username, null);
   }
 
   private void sendChatCompletions(String server, Player player) {
-    if (!this.ready) {
-      this.preReadyQueue.add(new QueuedChatCompletion(server, player));
-    } else {
-      player.addCustomChatCompletions(this.mentionCompletions.get(server));
-    }
+    // before the bot is ready the player is only registered, the names follow once the member index is built
+    this.completions.update(new CompletionRecipient(player), server);
   }
 
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
   public void onJoin(Player player, Optional<String> prefix, String server) {
     sendChatCompletions(server, player);
 
-    var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordChatConfig();
+    var route = this.routes.get(server, DiscordChatConfig.MessageCategory.JOIN);
 
-    if (serverDiscordConfig.JOIN_FORMAT.isEmpty()) {
+    if (!route.enabled()) {
       return;
     }
 
-    var message = new StringTemplate(serverDiscordConfig.JOIN_FORMAT.get())
+    if (!this.storms.offer(server, DiscordChatConfig.MessageCategory.JOIN, null)) {
+      return;
+    }
+
+    var message = new StringTemplate(route.format())
       .add("username", player.getUsername())
       .add("server", VelocityDiscord.CONFIG.serverName(server))
       .add("prefix", prefix.orElse(""))
       .toString();
 
-    var targetChannel = getServerChannels(server).joinChannel;
-    switch (serverDiscordConfig.JOIN_TYPE) {
-      case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.JOIN_EMBED_COLOR);
-      case TEXT -> sendMessage(targetChannel, message);
-      case WEBHOOK -> sendWebhookMessage(
-        player.getUniqueId().toString(),
-        player.getUsername(),
-        server,
-        message,
-        DiscordChatConfig.MessageCategory.JOIN
-      );
-    }
+    var uuid = player.getUniqueId().toString();
+
+    send(
+      server,
+      route,
+      DiscordChatConfig.MessageCategory.JOIN,
+      message,
+      uuid,
+      player.getUsername(),
+      collapseKey(uuid, server)
+    );
   }
 
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
   public void onServerSwitch(String username, String uuid, Optional<String> prefix, String current, String previous) {
-    var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(current).getDiscordChatConfig();
+    // the new server might use another chat channel
+    VelocityDiscord.SERVER.getPlayer(UUID.fromString(uuid)).ifPresent(player -> sendChatCompletions(current, player));
 
-    if (serverDiscordConfig.SERVER_SWITCH_FORMAT.isEmpty()) {
+    var route = this.routes.get(current, DiscordChatConfig.MessageCategory.SERVER_SWITCH);
+
+    if (!route.enabled()) {
       return;
     }
 
-    var message = new StringTemplate(serverDiscordConfig.SERVER_SWITCH_FORMAT.get())
+    if (!this.storms.offer(current, DiscordChatConfig.MessageCategory.SERVER_SWITCH, previous)) {
+      return;
+    }
+
+    var message = new StringTemplate(route.format())
       .add("username", username)
       .add("current", VelocityDiscord.CONFIG.serverName(current))
       .add("previous", VelocityDiscord.CONFIG.serverName(previous))
@@ -263,75 +444,108 @@ public class Discord extends ListenerAdapter {
       .toString();
 
     // todo: send to current or previous server or both
-    var targetChannel = getServerChannels(current).serverSwitchChannel;
-    switch (serverDiscordConfig.SERVER_SWITCH_TYPE) {
-      case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.SERVER_SWITCH_EMBED_COLOR);
-      case TEXT -> sendMessage(targetChannel, message);
-      case WEBHOOK ->
-        sendWebhookMessage(uuid, username, current, message, DiscordChatConfig.MessageCategory.SERVER_SWITCH);
-    }
+    send(current, route, DiscordChatConfig.MessageCategory.SERVER_SWITCH, message, uuid, username, null);
   }
 
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
   public void onDisconnect(String username, String uuid, Optional<String> prefix, String server) {
-    var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordChatConfig();
+    this.completions.remove(UUID.fromString(uuid));
 
-    if (serverDiscordConfig.DISCONNECT_FORMAT.isEmpty()) {
+    var route = this.routes.get(server, DiscordChatConfig.MessageCategory.DISCONNECT);
+
+    if (!route.enabled()) {
+      return;
+    }
+
+    // players that never made it onto a server have no server config to count them against
+    if (!server.isEmpty() && !this.storms.offer(server, DiscordChatConfig.MessageCategory.DISCONNECT, null)) {
       return;
     }
 
-    var message = new StringTemplate(serverDiscordConfig.DISCONNECT_FORMAT.get())
+    var message = new StringTemplate(route.format())
       .add("username", username)
       .add("prefix", prefix.orElse(""))
       .toString();
 
-    var targetChannel = getServerChannels(server).disconnectChannel;
-    switch (serverDiscordConfig.DISCONNECT_TYPE) {
-      case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.DISCONNECT_EMBED_COLOR);
-      case TEXT -> sendMessage(targetChannel, message);
-      case WEBHOOK -> sendWebhookMessage(uuid, username, server, message, DiscordChatConfig.MessageCategory.DISCONNECT);
-    }
+    send(
+      server,
+      route,
+      DiscordChatConfig.MessageCategory.DISCONNECT,
+      message,
+      uuid,
+      username,
+      collapseKey(uuid, server)
+    );
   }
 
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
   public void onLeave(String username, String uuid, Optional<String> prefix, String server) {
-    var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordChatConfig();
+    this.completions.remove(UUID.fromString(uuid));
 
-    if (serverDiscordConfig.LEAVE_FORMAT.isEmpty()) {
+    var route = this.routes.get(server, DiscordChatConfig.MessageCategory.LEAVE);
+
+    if (!route.enabled()) {
       return;
     }
 
-    var message = new StringTemplate(serverDiscordConfig.LEAVE_FORMAT.get())
+    if (!this.storms.offer(server, DiscordChatConfig.MessageCategory.LEAVE, null)) {
+      return;
+    }
+
+    var message = new StringTemplate(route.format())
       .add("username", username)
       .add("server", VelocityDiscord.CONFIG.serverName(server))
       .add("prefix", prefix.orElse(""))
       .toString();
 
-    var targetChannel = getServerChannels(server).leaveChannel;
-    switch (serverDiscordConfig.LEAVE_TYPE) {
-      case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.LEAVE_EMBED_COLOR);
-      case TEXT -> sendMessage(targetChannel, message);
-      case WEBHOOK -> sendWebhookMessage(uuid, username, server, message, DiscordChatConfig.MessageCategory.LEAVE);
+    send(server, route, DiscordChatConfig.MessageCategory.LEAVE, message, uuid, username, collapseKey(uuid, server));
+  }
+
+  private void sendStormSummary(
+    String server,
+    DiscordChatConfig.MessageCategory category,
+    @Nullable String previous,
+    int count
+  ) {
+    var format = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordChatConfig().getStormFormat(category);
+
+    if (format.isEmpty()) {
+      return;
+    }
+
+    var template = new StringTemplate(format.get())
+      .add("count", count)
+      .add("server", VelocityDiscord.CONFIG.serverName(server))
+      .add("current", VelocityDiscord.CONFIG.serverName(server));
+
+    if (previous != null) {
+      template.add("previous", VelocityDiscord.CONFIG.serverName(previous));
+    }
+
+    var message = template.toString();
+
+    var route = this.routes.get(server, category);
+
+    // a summary has no single player to impersonate, so webhook categories fall back to a plain message
+    if (route.type() == DiscordChatConfig.UserMessageType.EMBED) {
+      sendEmbedMessage(server, message, route.color(), category);
+    } else {
+      sendMessage(server, message, category);
     }
   }
 
   public void onPlayerDeath(String username, String uuid, String server, String displayName, String death) {
-    var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordChatConfig();
+    var route = this.routes.get(server, DiscordChatConfig.MessageCategory.DEATH);
 
-    if (serverDiscordConfig.DEATH_FORMAT.isEmpty()) return;
+    if (!route.enabled()) return;
 
-    var message = new StringTemplate(serverDiscordConfig.DEATH_FORMAT.get())
+    var message = new StringTemplate(route.format())
       .add("username", username)
       .add("displayname", displayName)
       .add("death_message", death)
       .toString();
 
-    var targetChannel = getServerChannels(server).deathChannel;
-    switch (serverDiscordConfig.DEATH_TYPE) {
-      case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.DEATH_EMBED_COLOR);
-      case TEXT -> sendMessage(targetChannel, message);
-      case WEBHOOK -> sendWebhookMessage(uuid, username, server, message, DiscordChatConfig.MessageCategory.DEATH);
-    }
+    send(server, route, DiscordChatConfig.MessageCategory.DEATH, message, uuid, username, null);
   }
 
   public void onPlayerAdvancement(
@@ -342,38 +556,25 @@ public class Discord extends ListenerAdapter {
     String title,
     String description
   ) {
-    var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordChatConfig();
+    var route = this.routes.get(server, DiscordChatConfig.MessageCategory.ADVANCEMENT);
 
-    if (serverDiscordConfig.ADVANCEMENT_FORMAT.isEmpty()) return;
+    if (!route.enabled()) return;
 
-    var message = new StringTemplate(serverDiscordConfig.ADVANCEMENT_FORMAT.get())
+    var message = new StringTemplate(route.format())
       .add("username", username)
       .add("displayname", displayname)
       .add("advancement_title", title)
       .add("advancement_description", description)
       .toString();
 
-    var targetChannel = getServerChannels(server).advancementChannel;
-    switch (serverDiscordConfig.ADVANCEMENT_TYPE) {
-      case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.ADVANCEMENT_EMBED_COLOR);
-      case TEXT -> sendMessage(targetChannel, message);
-      case WEBHOOK ->
-        sendWebhookMessage(uuid, username, server, message, DiscordChatConfig.MessageCategory.ADVANCEMENT);
-    }
+    send(server, route, DiscordChatConfig.MessageCategory.ADVANCEMENT, message, uuid, username, null);
   }
 
   public void onProxyInitialize() {
-    if (VelocityDiscord.CONFIG.getDiscordChatConfig().PROXY_START_FORMAT.isPresent()) {
-      var message = VelocityDiscord.CONFIG.getDiscordChatConfig().PROXY_START_FORMAT.get();
-
-      switch (VelocityDiscord.CONFIG.getDiscordChatConfig().PROXY_START_TYPE) {
-        case EMBED -> sendEmbedMessage(
-          this.proxyStartChannel,
-          message,
-          VelocityDiscord.CONFIG.getDiscordChatConfig().PROXY_START_EMBED_COLOR
-        );
-        case TEXT -> sendMessage(this.proxyStartChannel, message);
-      }
+    var route = this.routes.get(null, DiscordChatConfig.MessageCategory.PROXY_START);
+
+    if (route.enabled()) {
+      send(null, route, DiscordChatConfig.MessageCategory.PROXY_START, route.format().source(), null, null, null);
     }
   }
 
@@ -381,49 +582,41 @@ public class Discord extends ListenerAdapter {
     if (this.jda == null || this.jda.getStatus() == JDA.Status.SHUTDOWN) {
       return;
     }
-    if (VelocityDiscord.CONFIG.getDiscordChatConfig().PROXY_STOP_FORMAT.isPresent()) {
-      var message = VelocityDiscord.CONFIG.getDiscordChatConfig().PROXY_STOP_FORMAT.get();
 
-      switch (VelocityDiscord.CONFIG.getDiscordChatConfig().PROXY_STOP_TYPE) {
-        case EMBED -> sendEmbedMessage(
-          this.proxyStopChannel,
-          message,
-          VelocityDiscord.CONFIG.getDiscordChatConfig().PROXY_STOP_EMBED_COLOR
-        );
-        case TEXT -> sendMessage(this.proxyStopChannel, message);
-      }
+    var route = this.routes.get(null, DiscordChatConfig.MessageCategory.PROXY_STOP);
+
+    if (route.enabled()) {
+      send(null, route, DiscordChatConfig.MessageCategory.PROXY_STOP, route.format().source(), null, null, null);
     }
+
+    // don't hold the stop message back until the batch window elapses
+    this.storms.flushAll();
+    this.batcher.flushAll();
+    this.scheduler.drainAll();
+    this.topics.cancelAll();
   }
 
   public void onServerStart(String server) {
-    var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordChatConfig();
+    var route = this.routes.get(server, DiscordChatConfig.MessageCategory.SERVER_START);
 
-    if (serverDiscordConfig.SERVER_START_FORMAT.isPresent()) {
-      var message = new StringTemplate(serverDiscordConfig.SERVER_START_FORMAT.get())
+    if (route.enabled()) {
+      var message = new StringTemplate(route.format())
         .add("server", VelocityDiscord.CONFIG.serverName(server))
         .toString();
 
-      var targetChannel = this.serverChannels.get(server).serverStartChannel;
-      switch (serverDiscordConfig.SERVER_START_TYPE) {
-        case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.SERVER_START_EMBED_COLOR);
-        case TEXT -> sendMessage(targetChannel, message);
-      }
+      send(server, route, DiscordChatConfig.MessageCategory.SERVER_START, message, null, null, null);
     }
   }
 
   public void onServerStop(String server) {
-    var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(server).getDiscordChatConfig();
+    var route = this.routes.get(server, DiscordChatConfig.MessageCategory.SERVER_STOP);
 
-    if (serverDiscordConfig.SERVER_STOP_FORMAT.isPresent()) {
-      var message = new StringTemplate(serverDiscordConfig.SERVER_STOP_FORMAT.get())
+    if (route.enabled()) {
+      var message = new StringTemplate(route.format())
         .add("server", VelocityDiscord.CONFIG.serverName(server))
         .toString();
 
-      var targetChannel = this.serverChannels.get(server).serverStopChannel;
-      switch (serverDiscordConfig.SERVER_STOP_TYPE) {
-        case EMBED -> sendEmbedMessage(targetChannel, message, serverDiscordConfig.SERVER_STOP_EMBED_COLOR);
-        case TEXT -> sendMessage(targetChannel, message);
-      }
+      send(server, route, DiscordChatConfig.MessageCategory.SERVER_STOP, message, null, null, null);
     }
   }
 
@@ -443,169 +636,299 @@ public class Discord extends ListenerAdapter {
     }
   }
 
-  // todo: per server channel overrides for topic
-  public String generateChannelTopic() {
-    var config = VelocityDiscord.CONFIG.getDiscordConfig();
-    if (config.TOPIC_FORMAT.isEmpty()) return null;
-
-    // Collect additional information
-    var playerCount = VelocityDiscord.SERVER.getPlayerCount();
-
-    var playerList = "";
-
-    // only generate player list if it's in the TOPIC_FORMAT
-    if (config.TOPIC_FORMAT.get().contains("{player_list}")) {
-      var players = VelocityDiscord.SERVER
-        .getAllPlayers()
-        .stream()
-        .limit(config.TOPIC_PLAYER_LIST_MAX_COUNT)
-        .map(player -> new StringTemplate(config.TOPIC_PLAYER_LIST_FORMAT)
-          .add("username", player.getUsername())
-          .add("ping", player.getPing())
-          .toString())
-        .reduce("", (a, b) -> a + config.TOPIC_PLAYER_LIST_SEPARATOR + b);
-
-      if (!players.isEmpty()) {
-        // Remove leading separator and add header if configured
-        players = players.substring(config.TOPIC_PLAYER_LIST_SEPARATOR.length());
-        if (config.TOPIC_PLAYER_LIST_HEADER.isPresent()) {
-          playerList = config.TOPIC_PLAYER_LIST_HEADER.get() + players;
-        } else {
-          playerList = players;
-        }
-      } else {
-        playerList = config.TOPIC_PLAYER_LIST_NO_PLAYERS_HEADER.orElse("");
-      }
+  /**
+   * Build the main channel's topic, completes once the servers without a recent ping answered or the deadline passed
+   *
+   * @return completes with null if the topic is disabled
+   */
+  public CompletableFuture<String> generateChannelTopic() {
+    return generateChannelTopic(VelocityDiscord.CONFIG.getDiscordConfig(), null);
+  }
+
+  /**
+   * @param server the server whose channel the topic is for, null for the main channel
+   */
+  private CompletableFuture<String> generateChannelTopic(DiscordConfig config, @Nullable RegisteredServer server) {
+    if (config.TOPIC_FORMAT.isEmpty()) return CompletableFuture.completedFuture(null);
+
+    // errors go into the future, callers handle them in one place
+    try {
+      var format = Template.of(config.TOPIC_FORMAT.get());
+
+      return serverStatuses(format).thenApply(serverStatuses -> generateChannelTopic(config, server, serverStatuses));
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
     }
+  }
 
+  private String generateChannelTopic(
+    DiscordConfig config,
+    @Nullable RegisteredServer server,
+    Map<String, String> serverStatuses
+  ) {
     var s = VelocityDiscord.SERVER;
-    var serverCount = s.getAllServers().size();
-    var serverList =
-      s.getAllServers().stream().map(registeredServer -> registeredServer.getServerInfo().getName()).toList();
-    var hostname = s.getBoundAddress().getHostName();
-    var port = String.valueOf(s.getBoundAddress().getPort());
-    var queryMotd = PlainTextComponentSerializer.plainText().serialize(s.getConfiguration().getMotd());
-    var queryPort = s.getConfiguration().getQueryPort();
-    var queryMaxPlayers = s.getConfiguration().getShowMaxPlayers();
-    var pluginCount = s.getPluginManager().getPlugins().size();
-    var pluginList = s
-      .getPluginManager()
-      .getPlugins()
-      .stream()
-      .map(plugin -> plugin.getDescription().getName())
-      .flatMap(Optional::stream)
-      .toList();
-    var proxyVersion = s.getVersion().getVersion();
-    var proxySoftware = s.getVersion().getName();
-
-    // Calculate average ping
-    var averagePing = s.getAllPlayers().stream().mapToLong(Player::getPing).average().orElse(0.0);
-
-    // Get server uptime
-    var uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
-    var formattedUptime = formatUptime(uptimeMillis);
-
-    // Ping each server and get status
-    var serverStatuses = new HashMap<String, String>();
-    for (var registeredServer : s.getAllServers()) {
-      var name = registeredServer.getServerInfo().getName();
 
-      if (VelocityDiscord.CONFIG.serverDisabled(name)) {
+    // a server's channel shows that server's players, everything else is about the proxy
+    Collection<Player> players = server == null ? s.getAllPlayers() : server.getPlayersConnected();
+    var name = server == null ? null : server.getServerInfo().getName();
+
+    // every value is only computed if the format has its placeholder
+    var template = new StringTemplate(config.TOPIC_FORMAT.get())
+      .add("players", () -> String.valueOf(players.size()))
+      .add("player_list", () -> playerList(config, players))
+      .add("server", () -> name == null ? "" : VelocityDiscord.CONFIG.serverName(name))
+      .add("servers", () -> String.valueOf(s.getAllServers().size()))
+      .add("server_list", () -> {
+        var serverList = new StringJoiner(", ");
+        for (var registeredServer : s.getAllServers()) {
+          serverList.add(VelocityDiscord.CONFIG.serverName(registeredServer.getServerInfo().getName()));
+        }
+        return serverList.toString();
+      })
+      .add("hostname", () -> s.getBoundAddress().getHostName())
+      .add("port", () -> String.valueOf(s.getBoundAddress().getPort()))
+      .add("motd", () -> PlainTextComponentSerializer.plainText().serialize(motd(name)))
+      .add("query_port", () -> String.valueOf(s.getConfiguration().getQueryPort()))
+      .add("max_players", () -> String.valueOf(maxPlayers(name)))
+      .add("plugins", () -> String.valueOf(s.getPluginManager().getPlugins().size()))
+      .add("plugin_list", () -> {
+        var pluginList = new StringJoiner(", ");
+        for (var plugin : s.getPluginManager().getPlugins()) {
+          plugin.getDescription().getName().ifPresent(pluginList::add);
+        }
+        return pluginList.toString();
+      })
+      .add("version", () -> s.getVersion().getVersion())
+      .add("software", () -> s.getVersion().getName())
+      .add("average_ping", () -> {
+        var averagePing = players.stream().mapToLong(Player::getPing).average().orElse(0.0);
+        return String.format("%.2f ms", averagePing);
+      })
+      .add("uptime", () -> formatUptime(ManagementFactory.getRuntimeMXBean().getUptime()));
+
+    // Add server-specific details with server[SERVERNAME] placeholders
+    for (var entry : serverStatuses.entrySet()) {
+      template.add("server[" + entry.getKey() + "]", entry.getValue());
+    }
+
+    var topic = template.toString();
+
+    if (topic.length() > 1024) {
+      topic = topic.substring(0, 1000) + "...";
+    }
+
+    return topic;
+  }
+
+  private static String playerList(DiscordConfig config, Collection<Player> players) {
+    var max = config.TOPIC_PLAYER_LIST_MAX_COUNT;
+    // below 1 shows everyone, like the config says
+    var count = max < 1 ? players.size() : Math.min(players.size(), max);
+
+    if (count == 0) {
+      return config.TOPIC_PLAYER_LIST_NO_PLAYERS_HEADER.orElse("");
+    }
+
+    // one builder for the whole list, the entry format is compiled once and rendered straight into it
+    var format = Template.of(config.TOPIC_PLAYER_LIST_FORMAT);
+    var usernameSlot = format.slot("username");
+    var pingSlot = format.slot("ping");
+    var values = new String[format.slotCount()];
+
+    var list = new StringBuilder(count * 24);
+    config.TOPIC_PLAYER_LIST_HEADER.ifPresent(list::append);
+
+    var i = 0;
+    for (var player : players) {
+      if (i == count) break;
+      if (i++ > 0) list.append(config.TOPIC_PLAYER_LIST_SEPARATOR);
+
+      if (usernameSlot >= 0) values[usernameSlot] = player.getUsername();
+      if (pingSlot >= 0) values[pingSlot] = String.valueOf(player.getPing());
+
+      format.renderTo(list, values);
+    }
+
+    return list.toString();
+  }
+
+  // server state comes from the health monitor, nothing is pinged just for these
+  private static Component motd(@Nullable String server) {
+    if (server == null) return VelocityDiscord.SERVER.getConfiguration().getMotd();
+
+    var health = healthMonitor();
+    var ping = health == null ? null : health.lastPing(server);
+
+    return ping == null ? Component.empty() : ping.getDescriptionComponent();
+  }
+
+  private static int maxPlayers(@Nullable String server) {
+    if (server == null) return VelocityDiscord.SERVER.getConfiguration().getShowMaxPlayers();
+
+    var health = healthMonitor();
+
+    return health == null ? 0 : health.state(server).maxPlayers;
+  }
+
+  @Nullable
+  private static ServerHealthMonitor healthMonitor() {
+    var listener = VelocityDiscord.getListener();
+    return listener == null ? null : listener.getHealthMonitor();
+  }
+
+  /**
+   * Update the topic of every channel that has one, spread out over {@code spreadMillis} so they don't all build and
+   * send at once
+   */
+  public void updateChannelTopics(long spreadMillis) {
+    if (!this.ready) return;
+
+    var channels = this.topicChannels;
+    if (channels.isEmpty()) return;
+
+    var step = spreadMillis / channels.size();
+
+    for (var i = 0; i < channels.size(); i++) {
+      var channel = channels.get(i);
+
+      if (i == 0 || step == 0) {
+        updateChannelTopic(channel);
         continue;
       }
 
-      var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(name).getDiscordConfig();
+      VelocityDiscord.SERVER
+        .getScheduler()
+        .buildTask(VelocityDiscord.getInstance(), () -> updateChannelTopic(channel))
+        .delay(step * i, TimeUnit.MILLISECONDS)
+        .schedule();
+    }
+  }
+
+  private void updateChannelTopic(TopicChannel channel) {
+    // channels may have been reloaded while this one was waiting for its turn
+    if (!this.topicChannels.contains(channel)) return;
 
-      if (serverDiscordConfig.TOPIC_SERVER_FORMAT.isEmpty()) {
-        serverStatuses.put(name, "");
+    generateChannelTopic(channel.config, channel.server).whenComplete((topic, error) -> {
+      if (error != null) {
+        VelocityDiscord.LOGGER.error("Failed to generate topic for channel {}", channel.channel.getId(), error);
+        return;
       }
 
-      try {
-        var ping = registeredServer.ping();
+      if (topic == null) return;
 
-        ping.thenAccept(serverPing -> {
-          if (serverPing.getPlayers().isEmpty()) {
-            return;
-          }
-
-          var players = serverPing.getPlayers().get();
-
-          var online = players.getOnline();
-          var max = players.getMax();
-          var ver = serverPing.getVersion().getName();
-          var protocol = serverPing.getVersion().getProtocol();
-          var motd = PlainTextComponentSerializer.plainText().serialize(serverPing.getDescriptionComponent());
-
-          var serverStatus = new StringTemplate(serverDiscordConfig.TOPIC_SERVER_FORMAT.get())
-            .add("name", VelocityDiscord.CONFIG.serverName(name))
-            .add("players", online)
-            .add("max_players", max)
-            .add("version", ver)
-            .add("protocol", protocol)
-            .add("motd", motd)
-            .toString();
-
-          serverStatuses.put(name, serverStatus);
-        }).get(5, TimeUnit.SECONDS);
-      } catch (Exception e) {
-        if (serverDiscordConfig.TOPIC_SERVER_OFFLINE_FORMAT.isEmpty()) {
-          serverStatuses.put(name, "");
-          continue;
-        }
+      this.topics.update(channel.channel, topic);
+    });
+  }
 
-        var serverStatus = new StringTemplate(serverDiscordConfig.TOPIC_SERVER_OFFLINE_FORMAT.get())
-          .add("name", VelocityDiscord.CONFIG.serverName(name))
-          .toString();
+  private List<TopicChannel> loadTopicChannels() {
+    var rootConfig = VelocityDiscord.CONFIG.getDiscordConfig();
+    var channels = new LinkedHashMap<Long, TopicChannel>();
 
-        serverStatuses.put(name, serverStatus);
-      }
+    if (this.mainChannel != null && rootConfig.TOPIC_FORMAT.isPresent()) {
+      channels.put(this.mainChannel.getIdLong(), new TopicChannel(this.mainChannel, rootConfig, null));
     }
 
-    // todo: per server channel overrides for topic
-    var serverDiscordConfig = VelocityDiscord.CONFIG.getDiscordConfig();
-
-    if (serverDiscordConfig.TOPIC_FORMAT.isEmpty()) return "";
-
-    // Build the message
-    var template = new StringTemplate(serverDiscordConfig.TOPIC_FORMAT.get())
-      .add("players", playerCount)
-      .add("player_list", playerList)
-      .add("servers", serverCount)
-      .add("server_list", String.join(", ", serverList.stream().map(VelocityDiscord.CONFIG::serverName).toList()))
-      .add("hostname", hostname)
-      .add("port", port)
-      .add("motd", queryMotd)
-      .add("query_port", queryPort)
-      .add("max_players", queryMaxPlayers)
-      .add("plugins", pluginCount)
-      .add("plugin_list", String.join(", ", pluginList))
-      .add("version", proxyVersion)
-      .add("software", proxySoftware)
-      .add("average_ping", String.format("%.2f ms", averagePing))
-      .add("uptime", formattedUptime);
+    for (var server : VelocityDiscord.SERVER.getAllServers()) {
+      var name = server.getServerInfo().getName();
+      if (VelocityDiscord.CONFIG.serverDisabled(name)) continue;
 
-    // Add server-specific details with server[SERVERNAME] placeholders
-    for (var entry : serverStatuses.entrySet()) {
-      template.add("server[" + entry.getKey() + "]", entry.getValue());
+      var config = VelocityDiscord.CONFIG.getServerConfig(name).getDiscordConfig();
+
+      // servers without a channel of their own are covered by the main channel's topic
+      if (config == rootConfig || config.TOPIC_FORMAT.isEmpty()) continue;
+      if (config.MAIN_CHANNEL_ID.equals(rootConfig.MAIN_CHANNEL_ID)) continue;
+
+      var channel = this.jda.getTextChannelById(config.MAIN_CHANNEL_ID);
+      if (channel == null) continue;
+
+      // the first server of a shared channel sets its topic
+      channels.putIfAbsent(channel.getIdLong(), new TopicChannel(channel, config, server));
     }
 
-    var topic = template.toString();
+    return List.copyOf(channels.values());
+  }
 
-    if (topic.length() > 1024) {
-      topic = topic.substring(0, 1000) + "...";
+  /**
+   * Status line of every server the format shows, from the health monitor's last ping where there is one
+   * <p>
+   * Servers it has nothing on yet are pinged all at once, the ones that don't answer before the deadline count as
+   * offline.
+   */
+  private CompletableFuture<Map<String, String>> serverStatuses(Template format) {
+    var health = healthMonitor();
+
+    var pings = new HashMap<String, CompletableFuture<ServerPing>>();
+    for (var registeredServer : VelocityDiscord.SERVER.getAllServers()) {
+      var name = registeredServer.getServerInfo().getName();
+
+      // servers the format doesn't show don't need a ping
+      if (VelocityDiscord.CONFIG.serverDisabled(name) || !format.uses("server[" + name + "]")) {
+        continue;
+      }
+
+      var cached = health == null ? null : health.lastPing(name);
+
+      if (cached != null) {
+        pings.put(name, CompletableFuture.completedFuture(cached));
+      } else if (health != null && health.knownOffline(name)) {
+        pings.put(name, CompletableFuture.completedFuture(null));
+      } else {
+        pings.put(name, ping(registeredServer));
+      }
     }
 
-    return topic;
+    return CompletableFuture
+      .allOf(pings.values().toArray(CompletableFuture[]::new))
+      .completeOnTimeout(null, TOPIC_PING_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+      .thenApply(ignored -> {
+        var serverStatuses = new HashMap<String, String>();
+
+        for (var entry : pings.entrySet()) {
+          var status = serverStatus(entry.getKey(), entry.getValue().getNow(null));
+          if (status != null) serverStatuses.put(entry.getKey(), status);
+        }
+
+        return serverStatuses;
+      });
   }
 
-  public void updateChannelTopic() {
-    if (!this.ready) return;
+  private static CompletableFuture<ServerPing> ping(RegisteredServer server) {
+    try {
+      return server.ping().exceptionally(e -> null);
+    } catch (Exception e) {
+      return CompletableFuture.completedFuture(null);
+    }
+  }
+
+  /**
+   * @return null for a server that answered without player info, its placeholder is left as it is
+   */
+  @Nullable
+  private static String serverStatus(String name, @Nullable ServerPing serverPing) {
+    var serverDiscordConfig = VelocityDiscord.CONFIG.getServerConfig(name).getDiscordConfig();
+
+    if (serverPing != null && serverPing.getPlayers().isEmpty()) return null;
+
+    if (serverPing == null) {
+      return serverDiscordConfig.TOPIC_SERVER_OFFLINE_FORMAT
+        .map(format -> new StringTemplate(format).add("name", VelocityDiscord.CONFIG.serverName(name)).toString())
+        .orElse("");
+    }
 
-    var topic = generateChannelTopic();
+    if (serverDiscordConfig.TOPIC_SERVER_FORMAT.isEmpty()) {
+      return "";
+    }
 
-    if (topic == null) return;
+    var players = serverPing.getPlayers().get();
 
-    this.mainChannel.getManager().setTopic(topic).queue();
+    return new StringTemplate(serverDiscordConfig.TOPIC_SERVER_FORMAT.get())
+      .add("name", VelocityDiscord.CONFIG.serverName(name))
+      .add("players", players.getOnline())
+      .add("max_players", players.getMax())
+      .add("version", serverPing.getVersion().getName())
+      .add("protocol", serverPing.getVersion().getProtocol())
+      .add("motd", PlainTextComponentSerializer.plainText().serialize(serverPing.getDescriptionComponent()))
+      .toString();
   }
 
   private String formatUptime(long uptimeMillis) {
@@ -636,24 +959,118 @@ public class Discord extends ListenerAdapter {
 
   // region Message sending
 
-  private void sendMessage(TextChannel targetChannel, @Nonnull String message) {
-    if (this.ready) {
-      targetChannel.sendMessage(message).queue();
+  /**
+   * Send a rendered message the way the route says to
+   *
+   * @param uuid     player the message is about, only needed for webhook routes
+   * @param username player the message is about, only needed for webhook routes
+   */
+  private void send(
+    @Nullable String server,
+    RoutingTable.Route route,
+    DiscordChatConfig.MessageCategory category,
+    String message,
+    @Nullable String uuid,
+    @Nullable String username,
+    @Nullable String collapseKey
+  ) {
+    switch (route.type()) {
+      case EMBED -> sendEmbedMessage(server, message, route.color(), category, collapseKey);
+      case TEXT -> sendMessage(server, message, category, collapseKey);
+      case WEBHOOK -> sendWebhookMessage(uuid, username, server, message, category);
+    }
+  }
+
+  private void sendMessage(
+    @Nullable String server,
+    @Nonnull String message,
+    DiscordChatConfig.MessageCategory category
+  ) {
+    sendMessage(server, message, category, null);
+  }
+
+  /**
+   * @param server server the message belongs to, null for proxy messages
+   */
+  private void sendMessage(
+    @Nullable String server,
+    @Nonnull String message,
+    DiscordChatConfig.MessageCategory category,
+    @Nullable String collapseKey
+  ) {
+    sendOrEnqueue(
+      () -> deliverMessage(server, message, category, collapseKey),
+      () -> new QueuedStringMessage(server, category, message)
+    );
+  }
+
+  private void deliverMessage(
+    @Nullable String server,
+    String message,
+    DiscordChatConfig.MessageCategory category,
+    @Nullable String collapseKey
+  ) {
+    var channel = getChannel(server, category);
+    if (channel == null) {
+      VelocityDiscord.LOGGER.error("Failed to send {} message for `{}`: channel is null", category, server);
+      return;
+    }
+
+    if (VelocityDiscord.CONFIG.getDiscordConfig().OUTBOUND.batchingEnabled()) {
+      this.batcher.add(channel, message, OutboundScheduler.priorityOf(category));
     } else {
-      this.preReadyQueue.add(new QueuedStringMessage(targetChannel, message));
+      this.scheduler.submit(channel.getIdLong(), category, collapseKey, () -> channel.sendMessage(message));
     }
   }
 
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-  private void sendEmbedMessage(TextChannel channel, String message, Optional<Color> color) {
+  private void sendEmbedMessage(
+    @Nullable String server,
+    String message,
+    Optional<Color> color,
+    DiscordChatConfig.MessageCategory category
+  ) {
+    sendEmbedMessage(server, message, color, category, null);
+  }
+
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private void sendEmbedMessage(
+    @Nullable String server,
+    String message,
+    Optional<Color> color,
+    DiscordChatConfig.MessageCategory category,
+    @Nullable String collapseKey
+  ) {
+    sendOrEnqueue(
+      () -> deliverEmbedMessage(server, message, color, category, collapseKey),
+      () -> new QueuedEmbedMessage(server, category, message, color)
+    );
+  }
+
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private void deliverEmbedMessage(
+    @Nullable String server,
+    String message,
+    Optional<Color> color,
+    DiscordChatConfig.MessageCategory category,
+    @Nullable String collapseKey
+  ) {
+    var channel = getChannel(server, category);
+    if (channel == null) {
+      VelocityDiscord.LOGGER.error("Failed to send {} embed for `{}`: channel is null", category, server);
+      return;
+    }
+
     var embed = new EmbedBuilder().setDescription(message);
 
     color.ifPresent(embed::setColor);
 
-    if (this.ready) {
-      channel.sendMessageEmbeds(embed.build()).queue();
+    var built = embed.build();
+
+    if (VelocityDiscord.CONFIG.getDiscordConfig().OUTBOUND.batchingEnabled()) {
+      this.batcher.addEmbed(channel, built, OutboundScheduler.priorityOf(category));
     } else {
-      this.preReadyQueue.add(new QueuedEmbedMessage(channel, embed));
+      this.scheduler.submit(channel.getIdLong(), category, collapseKey, () -> channel.sendMessageEmbeds(built));
     }
   }
 
@@ -664,66 +1081,213 @@ public class Discord extends ListenerAdapter {
     String content,
     DiscordChatConfig.MessageCategory type
   ) {
-    var serverConfig = VelocityDiscord.CONFIG.getServerConfig(server);
-    var discordConfig = serverConfig.getDiscordChatConfig();
-    var webhookConfig = discordConfig.getWebhookConfig(type);
+    var route = this.routes.get(server, type);
 
-    var avatar = new StringTemplate(webhookConfig.AVATAR_URL).add("username", username).add("uuid", uuid).toString();
+    var avatar = new StringTemplate(route.webhookAvatar()).add("username", username).add("uuid", uuid).toString();
 
-    var discordName = new StringTemplate(webhookConfig.USERNAME)
+    var discordName = new StringTemplate(route.webhookUsername())
       .add("username", username)
       .add("server", VelocityDiscord.CONFIG.serverName(server))
       .toString();
 
+    sendOrEnqueue(
+      () -> deliverWebhookMessage(server, uuid, type, content, avatar, discordName, collapseKey(uuid, server)),
+      () -> new QueuedWebhookMessage(server, uuid, type, content, avatar, discordName)
+    );
+  }
+
+  private void deliverWebhookMessage(
+    String server,
+    String uuid,
+    DiscordChatConfig.MessageCategory type,
+    String content,
+    String avatar,
+    String discordName,
+    @Nullable String collapseKey
+  ) {
+    var pool = this.routes.get(server, type).webhooks();
+
+    if (pool == null) {
+      VelocityDiscord.LOGGER.error("Failed to get webhook client for server `{}`: client is null", server);
+      return;
+    }
+
     var webhookMessage = new MessageCreateBuilder().setContent(content).build();
 
-    if (this.ready) {
-      var channels = this.serverChannels.get(server);
-      if (channels == null) {
-        VelocityDiscord.LOGGER.error("Failed to get webhook client for server `{}`: serverChannels is null", server);
-        return;
+    VelocityDiscord.LOGGER.info("Sending webhook message to `{}`: avatar={}, username={}", server, avatar, discordName);
+    pool.submit(
+      this.scheduler,
+      uuid,
+      type,
+      collapseKey,
+      client -> client.sendMessage(webhookMessage).setAvatarUrl(avatar).setUsername(discordName)
+    );
+  }
+
+  // while the spool is in use, messages also wait for the gateway to come back instead of going out into the void
+  private boolean canSend() {
+    return this.ready && (this.connected || getSpool() == null);
+  }
+
+  // the read lock is held from the check until the message is handed on, so it can't slip past a replay
+  private void sendOrEnqueue(Runnable deliver, Supplier<IQueuedMessage> queued) {
+    var lock = this.replayLock.readLock();
+    lock.lock();
+
+    try {
+      if (canSend()) {
+        deliver.run();
+      } else {
+        enqueue(queued.get());
       }
+    } finally {
+      lock.unlock();
+    }
+  }
 
-      var client = channels.getClientForCategory(type);
+  private void enqueue(IQueuedMessage message) {
+    var spool = getSpool();
 
-      if (client == null) {
-        VelocityDiscord.LOGGER.error("Failed to get webhook client for server `{}`: client is null", server);
-        return;
+    if (spool != null && spool.append(message)) return;
+
+    // already drained, so the bot became ready in the meantime
+    if (!this.preReadyQueue.offer(message)) {
+      message.send(this);
+    }
+  }
+
+  /**
+   * Mark the session as usable and send everything that was queued while the bot wasn't ready or the gateway was down
+   * <p>
+   * Runs under the write lock, messages sent at the same time wait and go out after the replayed ones.
+   */
+  private void sendQueued() {
+    var lock = this.replayLock.writeLock();
+    lock.lock();
+
+    try {
+      this.ready = true;
+      this.connected = true;
+
+      replayQueued();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void replayQueued() {
+    var spool = getSpool();
+
+    if (spool != null) {
+      var retention = VelocityDiscord.CONFIG.getDiscordConfig().OUTBOUND.SPOOL_RETENTION_MINUTES;
+
+      var spooled = spool.drain(TimeUnit.MINUTES.toMillis(retention));
+      if (!spooled.isEmpty()) {
+        VelocityDiscord.LOGGER.info("Replaying {} spooled messages", spooled.size());
       }
 
-      VelocityDiscord.LOGGER.info("Sending webhook message to `{}`: avatar={}, username={}", server, avatar, discordName);
-      client.sendMessage(webhookMessage).setAvatarUrl(avatar).setUsername(discordName).queue();
-    } else {
-      this.preReadyQueue.add(new QueuedWebhookMessage(server, type, webhookMessage, avatar, discordName));
+      for (var msg : spooled) {
+        msg.send(this);
+      }
+    }
+
+    var queued = this.preReadyQueue.drain();
+    if (!queued.isEmpty() || this.preReadyQueue.droppedCount() > 0) {
+      VelocityDiscord.LOGGER.info(
+        "Sending {} messages queued before the bot was ready ({} dropped because the queue was full)",
+        queued.size(),
+        this.preReadyQueue.droppedCount()
+      );
+    }
+
+    for (var msg : queued) {
+      msg.send(this);
     }
   }
 
-  // endregion
+  private synchronized @Nullable Spool<IQueuedMessage> getSpool() {
+    var config = VelocityDiscord.CONFIG.getDiscordConfig().OUTBOUND;
 
-  private String parseMentions(String server, String message) {
-    var channels = this.serverChannels.get(server);
-    if (channels == null || channels.chatChannel == null || !this.ready) {
-      return message;
+    if (!config.spoolEnabled()) {
+      // disabled by a reload, whatever is left stays on disk until it's enabled again
+      closeSpool();
+      return null;
     }
 
-    var msg = message;
+    if (this.spool == null && !this.spoolFailed) {
+      try {
+        this.spool = new Spool<>(
+          VelocityDiscord.getInstance().getDataDirectory().resolve("spool"),
+          new QueuedMessageCodec(),
+          config.SPOOL_SEGMENT_SIZE_KB * 1024L,
+          VelocityDiscord.LOGGER
+        );
+      } catch (IOException e) {
+        VelocityDiscord.LOGGER.error("Failed to open message spool, messages are only kept in memory", e);
+        this.spoolFailed = true;
+        return null;
+      }
 
-    for (var member : channels.chatChannel.getMembers()) {
-      msg = Pattern
-        .compile(Pattern.quote("@" + member.getUser().getName()), Pattern.CASE_INSENSITIVE)
-        .matcher(msg)
-        .replaceAll(member.getAsMention());
+      this.spoolSyncTask = VelocityDiscord.SERVER
+        .getScheduler()
+        .buildTask(VelocityDiscord.getInstance(), this.spool::sync)
+        .repeat(Math.max(1, config.SPOOL_SYNC_INTERVAL_MILLIS), TimeUnit.MILLISECONDS)
+        .schedule();
     }
 
-    return msg;
+    return this.spool;
   }
 
-  private String filterEveryoneAndHere(String message) {
-    return EveryoneAndHerePattern.matcher(message).replaceAll("@\u200B${ping}");
+  private synchronized void closeSpool() {
+    if (this.spoolSyncTask != null) {
+      this.spoolSyncTask.cancel();
+      this.spoolSyncTask = null;
+    }
+
+    if (this.spool != null) {
+      this.spool.close();
+      this.spool = null;
+    }
   }
 
-  private String filterRawPings(String message) {
-    return RawPingPattern.matcher(message).replaceAll("<@\u200B${ping}>");
+  private TextChannel getChannel(@Nullable String server, DiscordChatConfig.MessageCategory category) {
+    return this.routes.get(server, category).channel();
+  }
+  // endregion
+
+  @Nullable
+  private PatternTrie<String> mentions(String server, String message) {
+    if (!this.ready) {
+      return null;
+    }
+
+    var config = VelocityDiscord.CONFIG.getDiscordConfig();
+
+    // only the members seen recently are known in lean mode, look up the rest
+    if (config.leanMemberCache() && config.UNKNOWN_MENTIONS != DiscordConfig.UnknownMentionPolicy.IGNORE) {
+      var unknown = this.members.unknownMentions(server, message);
+
+      if (!unknown.isEmpty()) {
+        var lookup = this.members.lookup(server, unknown);
+
+        // chat is handled off the event threads, so it's fine to hold this message back for a bit
+        if (config.UNKNOWN_MENTIONS == DiscordConfig.UnknownMentionPolicy.WAIT) {
+          try {
+            lookup.get(MENTION_LOOKUP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } catch (ExecutionException | TimeoutException e) {
+            VelocityDiscord.LOGGER.debug("Gave up waiting for member lookup of {}", unknown);
+          }
+        }
+      }
+    }
+
+    return this.members.mentions(server);
+  }
+
+  private static String collapseKey(String uuid, String server) {
+    return uuid + '/' + server;
   }
 
   private TextChannel loadChannel(String id) {
@@ -742,78 +1306,163 @@ public class Discord extends ListenerAdapter {
     return channel;
   }
 
-  private Channels getServerChannels(String server) {
-    return this.serverChannels.getOrDefault(server, this.defaultChannels);
+  private record CompletionRecipient(Player player) implements ChatCompletions.Recipient {
+    @Override
+    public UUID id() {
+      return this.player.getUniqueId();
+    }
+
+    @Override
+    public boolean isActive() {
+      return this.player.isActive();
+    }
+
+    @Override
+    public void addCompletions(Collection<String> completions) {
+      this.player.addCustomChatCompletions(completions);
+    }
+
+    @Override
+    public void removeCompletions(Collection<String> completions) {
+      this.player.removeCustomChatCompletions(completions);
+    }
   }
 
   private record QueuedWebhookMessage(
-    String server, DiscordChatConfig.MessageCategory type, MessageCreateData message, String avatar, String username
+    String server,
+    String uuid,
+    DiscordChatConfig.MessageCategory type,
+    String content,
+    String avatar,
+    String username
   ) implements IQueuedMessage {
-
     @Override
     public void send(Discord discord) {
-      var channels = discord.serverChannels.get(this.server);
-      if (channels == null) {
-        VelocityDiscord.LOGGER.error(
-          "[Queued] Failed to get webhook client for server `{}`: serverChannels is null",
-          this.server
-        );
-        return;
-      }
-
-      var client = channels.getClientForCategory(this.type);
+      discord.deliverWebhookMessage(this.server, this.uuid, this.type, this.content, this.avatar, this.username, null);
+    }
 
-      if (client != null) {
-        client.sendMessage(this.message).setAvatarUrl(this.avatar).setUsername(this.username).queue();
-      } else {
-        VelocityDiscord.LOGGER.error(
-          "[Queued] Failed to get webhook client for server `{}`: client is null",
-          this.server
-        );
-      }
+    @Override
+    public DiscordChatConfig.MessageCategory category() {
+      return this.type;
     }
   }
 
-  private record QueuedEmbedMessage(TextChannel channel, EmbedBuilder embed) implements IQueuedMessage {
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private record QueuedEmbedMessage(
+    @Nullable String server, DiscordChatConfig.MessageCategory category, String message, Optional<Color> color
+  ) implements IQueuedMessage {
     @Override
     public void send(Discord discord) {
-      this.channel.sendMessageEmbeds(this.embed.build()).queue();
+      discord.deliverEmbedMessage(this.server, this.message, this.color, this.category, null);
     }
   }
 
-  private record QueuedStringMessage(TextChannel channel, String message) implements IQueuedMessage {
+  private record QueuedStringMessage(
+    @Nullable String server, DiscordChatConfig.MessageCategory category, String message
+  ) implements IQueuedMessage {
     @Override
     public void send(Discord discord) {
-      this.channel.sendMessage(this.message).queue();
+      discord.deliverMessage(this.server, this.message, this.category, null);
     }
   }
 
-  private record QueuedChatCompletion(String server, Player player) implements IQueuedMessage {
+  private static class QueuedMessageCodec implements Spool.Codec<IQueuedMessage> {
+    private static final byte TEXT = 0;
+    private static final byte EMBED = 1;
+    private static final byte WEBHOOK = 2;
+
     @Override
-    public void send(Discord discord) {
-      this.player.addCustomChatCompletions(discord.mentionCompletions.get(this.server));
+    public void write(IQueuedMessage value, DataOutput out) throws IOException {
+      if (value instanceof QueuedStringMessage msg) {
+        out.writeByte(TEXT);
+        writeNullable(out, msg.server);
+        out.writeUTF(msg.category.name());
+        out.writeUTF(msg.message);
+      } else if (value instanceof QueuedEmbedMessage msg) {
+        out.writeByte(EMBED);
+        writeNullable(out, msg.server);
+        out.writeUTF(msg.category.name());
+        out.writeUTF(msg.message);
+        out.writeBoolean(msg.color.isPresent());
+        out.writeInt(msg.color.map(Color::getRGB).orElse(0));
+      } else if (value instanceof QueuedWebhookMessage msg) {
+        out.writeByte(WEBHOOK);
+        out.writeUTF(msg.server);
+        out.writeUTF(msg.uuid);
+        out.writeUTF(msg.type.name());
+        out.writeUTF(msg.content);
+        out.writeUTF(msg.avatar);
+        out.writeUTF(msg.username);
+      } else {
+        throw new IOException("Can't spool " + value.getClass().getSimpleName());
+      }
+    }
+
+    @Override
+    public IQueuedMessage read(DataInput in) throws IOException {
+      var kind = in.readByte();
+
+      return switch (kind) {
+        case TEXT -> new QueuedStringMessage(
+          readNullable(in),
+          DiscordChatConfig.MessageCategory.valueOf(in.readUTF()),
+          in.readUTF()
+        );
+        case EMBED -> {
+          var server = readNullable(in);
+          var category = DiscordChatConfig.MessageCategory.valueOf(in.readUTF());
+          var message = in.readUTF();
+          var hasColor = in.readBoolean();
+          var rgb = in.readInt();
+          Optional<Color> color = hasColor ? Optional.of(new Color(rgb)) : Optional.empty();
+          yield new QueuedEmbedMessage(server, category, message, color);
+        }
+        case WEBHOOK -> new QueuedWebhookMessage(
+          in.readUTF(),
+          in.readUTF(),
+          DiscordChatConfig.MessageCategory.valueOf(in.readUTF()),
+          in.readUTF(),
+          in.readUTF(),
+          in.readUTF()
+        );
+        default -> throw new IOException("Unknown spooled message kind " + kind);
+      };
+    }
+
+    private static void writeNullable(DataOutput out, @Nullable String value) throws IOException {
+      out.writeBoolean(value != null);
+      if (value != null) out.writeUTF(value);
+    }
+
+    private static @Nullable String readNullable(DataInput in) throws IOException {
+      return in.readBoolean() ? in.readUTF() : null;
     }
   }
 
+  /**
+   * A channel that gets a topic, {@code server} is null for the main channel which shows the whole proxy
+   */
+  private record TopicChannel(TextChannel channel, DiscordConfig config, @Nullable RegisteredServer server) {}
+
   public static class Channels {
     public String serverName;
 
-    private IncomingWebhookClient mainWebhook;
+    private WebhookPool mainWebhook;
 
     public TextChannel chatChannel;
-    public IncomingWebhookClient chatWebhook;
+    public WebhookPool chatWebhook;
     public TextChannel deathChannel;
-    public IncomingWebhookClient deathWebhook;
+    public WebhookPool deathWebhook;
     public TextChannel advancementChannel;
-    public IncomingWebhookClient advancementWebhook;
+    public WebhookPool advancementWebhook;
     public TextChannel joinChannel;
-    public IncomingWebhookClient joinWebhook;
+    public WebhookPool joinWebhook;
     public TextChannel leaveChannel;
-    public IncomingWebhookClient leaveWebhook;
+    public WebhookPool leaveWebhook;
     public TextChannel disconnectChannel;
-    public IncomingWebhookClient disconnectWebhook;
+    public WebhookPool disconnectWebhook;
     public TextChannel serverSwitchChannel;
-    public IncomingWebhookClient serverSwitchWebhook;
+    public WebhookPool serverSwitchWebhook;
     public TextChannel serverStartChannel;
     public TextChannel serverStopChannel;
 
@@ -835,17 +1484,33 @@ public class Discord extends ListenerAdapter {
       this.mainWebhook = null;
 
       if (msgCfg.isWebhookUsed()) {
-        this.chatWebhook = getClient(discord, msgCfg.MESSAGE_WEBHOOK);
-        this.deathWebhook = getClient(discord, msgCfg.DEATH_WEBHOOK);
-        this.advancementWebhook = getClient(discord, msgCfg.ADVANCEMENT_WEBHOOK);
-        this.joinWebhook = getClient(discord, msgCfg.JOIN_WEBHOOK);
-        this.leaveWebhook = getClient(discord, msgCfg.LEAVE_WEBHOOK);
-        this.disconnectWebhook = getClient(discord, msgCfg.DISCONNECT_WEBHOOK);
-        this.serverSwitchWebhook = getClient(discord, msgCfg.SERVER_SWITCH_WEBHOOK);
+        this.chatWebhook = getPool(discord, msgCfg.MESSAGE_WEBHOOK);
+        this.deathWebhook = getPool(discord, msgCfg.DEATH_WEBHOOK);
+        this.advancementWebhook = getPool(discord, msgCfg.ADVANCEMENT_WEBHOOK);
+        this.joinWebhook = getPool(discord, msgCfg.JOIN_WEBHOOK);
+        this.leaveWebhook = getPool(discord, msgCfg.LEAVE_WEBHOOK);
+        this.disconnectWebhook = getPool(discord, msgCfg.DISCONNECT_WEBHOOK);
+        this.serverSwitchWebhook = getPool(discord, msgCfg.SERVER_SWITCH_WEBHOOK);
       }
     }
 
-    public IncomingWebhookClient getClientForCategory(DiscordChatConfig.MessageCategory category) {
+    public TextChannel getChannelForCategory(DiscordChatConfig.MessageCategory category) {
+      return switch (category) {
+        case MESSAGE -> this.chatChannel;
+        case DEATH -> this.deathChannel;
+        case ADVANCEMENT -> this.advancementChannel;
+        case JOIN -> this.joinChannel;
+        case LEAVE -> this.leaveChannel;
+        case DISCONNECT -> this.disconnectChannel;
+        case SERVER_SWITCH -> this.serverSwitchChannel;
+        case SERVER_START -> this.serverStartChannel;
+        case SERVER_STOP -> this.serverStopChannel;
+        // proxy channels aren't per server
+        case PROXY_START, PROXY_STOP -> null;
+      };
+    }
+
+    public WebhookPool getWebhooksForCategory(DiscordChatConfig.MessageCategory category) {
       return switch (category) {
         case MESSAGE -> this.chatWebhook;
         case DEATH -> this.deathWebhook;
@@ -854,6 +1519,7 @@ public class Discord extends ListenerAdapter {
         case LEAVE -> this.leaveWebhook;
         case DISCONNECT -> this.disconnectWebhook;
         case SERVER_SWITCH -> this.serverSwitchWebhook;
+        case SERVER_START, SERVER_STOP, PROXY_START, PROXY_STOP -> null;
       };
     }
 
@@ -866,32 +1532,41 @@ public class Discord extends ListenerAdapter {
       return discord.loadChannel(id.get());
     }
 
-    private IncomingWebhookClient createClient(Discord discord, WebhookConfig config) {
-      try {
-        return WebhookClient.createClient(discord.jda, config.URL);
-      } catch (Exception e) {
-        VelocityDiscord.LOGGER.error("Failed to create webhook client for server {}", this.serverName, e);
+    private WebhookPool createPool(Discord discord, WebhookConfig config) {
+      var clients = new ArrayList<IncomingWebhookClient>();
+
+      for (var url : config.urls) {
+        try {
+          clients.add(WebhookClient.createClient(discord.jda, url));
+        } catch (Exception e) {
+          VelocityDiscord.LOGGER.error("Failed to create webhook client for server {}", this.serverName, e);
+        }
+      }
+
+      if (clients.isEmpty()) {
         return null;
       }
+
+      return new WebhookPool(clients);
     }
 
-    private IncomingWebhookClient getMainWebhook(Discord discord) {
+    private WebhookPool getMainWebhook(Discord discord) {
       if (this.mainWebhook == null) {
         var config = VelocityDiscord.CONFIG.getServerConfig(this.serverName).getDiscordConfig().WEBHOOK;
         if (!config.invalid()) {
-          this.mainWebhook = createClient(discord, config);
+          this.mainWebhook = createPool(discord, config);
         }
       }
 
       return this.mainWebhook;
     }
 
-    private IncomingWebhookClient getClient(Discord discord, WebhookConfig config) {
+    private WebhookPool getPool(Discord discord, WebhookConfig config) {
       if (config.invalid()) {
         return getMainWebhook(discord);
       }
 
-      return createClient(discord, config);
+      return createPool(discord, config);
     }
   }
 }
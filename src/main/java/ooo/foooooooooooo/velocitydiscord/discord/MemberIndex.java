@@ -0,0 +1,530 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.util.PatternTrie;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Members that can see each server's chat channel, used for mentions and chat completions
+ * <p>
+ * The member list is only read from JDA when channels are (re)loaded, after that it is kept up to date from member
+ * events. Readers get an immutable snapshot per channel, changes are collected and a new snapshot is published shortly
+ * after, so a burst of joins rebuilds it once instead of once per join.
+ * <p>
+ * In lean mode JDA doesn't download the member list, so each channel only keeps the most recently seen members up to
+ * the configured size. Members are added as they write in Discord, from member events and from looking up names that
+ * were mentioned in Minecraft chat.
+ * <p>
+ * Chat completions are capped to the configured amount, members who wrote in the channel most recently come first.
+ */
+public class MemberIndex {
+  private static final long PUBLISH_DELAY_MILLIS = 2000;
+  // names that weren't found aren't looked up again for this long
+  private static final long MISS_EXPIRY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+  private static final int MAX_LOOKUP_RESULTS = 10;
+  // the most Discord returns for one request
+  private static final int MAX_LOOKUP_LIMIT = 100;
+  private static final int MAX_LOOKUPS_PER_MESSAGE = 5;
+  // discord usernames are 2-32 lowercase letters, digits, _ and .
+  private static final int MIN_NAME_LENGTH = 2;
+  private static final int MAX_NAME_LENGTH = 32;
+
+  private static final Snapshot EMPTY = new Snapshot(PatternTrie.<String>builder().build(), List.of(), Set.of());
+
+  // by channel id, servers sharing a chat channel share an index
+  private final Map<Long, ChannelIndex> channels = new HashMap<>();
+  private volatile Map<String, ChannelIndex> servers = Map.of();
+
+  private ScheduledTask publishTask;
+  // called after new snapshots were published
+  private final Runnable onPublished;
+
+  // guild id + lowercase name, shared by every message mentioning the same unknown name
+  private final Map<String, CompletableFuture<Void>> lookups = new HashMap<>();
+  private final Map<String, Long> misses = new HashMap<>();
+
+  public MemberIndex(Runnable onPublished) {
+    this.onPublished = onPublished;
+  }
+
+  /**
+   * Read every member from scratch if the chat channels changed, otherwise the index is already up to date
+   */
+  public synchronized void rebuild(Map<String, TextChannel> chatChannels) {
+    if (sameChannels(chatChannels)) return;
+
+    this.channels.clear();
+
+    var servers = new HashMap<String, ChannelIndex>();
+
+    for (var entry : chatChannels.entrySet()) {
+      var channel = entry.getValue();
+      if (channel == null) continue;
+
+      var index = this.channels.computeIfAbsent(channel.getIdLong(), id -> {
+        var created = new ChannelIndex(channel);
+        created.load();
+        created.publish();
+        return created;
+      });
+
+      servers.put(entry.getKey(), index);
+    }
+
+    this.servers = Map.copyOf(servers);
+
+    this.onPublished.run();
+  }
+
+  public PatternTrie<String> mentions(String server) {
+    return snapshot(server).mentions;
+  }
+
+  /**
+   * Ranked and capped, the same instance is returned until something changes
+   */
+  public List<String> completions(String server) {
+    return snapshot(server).completions;
+  }
+
+  /**
+   * Someone wrote in a channel, they move to the front of its completions
+   */
+  public synchronized void onMessage(long channelId, Member member) {
+    var index = this.channels.get(channelId);
+    if (index == null) return;
+
+    var name = member.getUser().getName();
+    index.put(member.getIdLong(), name);
+    index.touch(member.getIdLong(), name);
+
+    schedulePublish();
+  }
+
+  /**
+   * Names mentioned in a message that the index doesn't know, lowercase and without the @
+   */
+  public Set<String> unknownMentions(String server, String message) {
+    var known = snapshot(server).names;
+    Set<String> unknown = null;
+
+    var i = message.indexOf('@');
+    while (i >= 0) {
+      var end = i + 1;
+      while (end < message.length() && end - i - 1 < MAX_NAME_LENGTH && isNameChar(message.charAt(end))) end++;
+
+      // raw <@id> pings are neutralised, not resolved
+      var rawPing = i > 0 && message.charAt(i - 1) == '<' && end < message.length() && message.charAt(end) == '>';
+
+      if (end - i - 1 >= MIN_NAME_LENGTH && !rawPing) {
+        var name = message.substring(i + 1, end).toLowerCase(Locale.ROOT);
+
+        if (!known.contains(name)) {
+          if (unknown == null) unknown = new HashSet<>();
+          unknown.add(name);
+        }
+      }
+
+      i = message.indexOf('@', end);
+    }
+
+    return unknown == null ? Set.of() : unknown;
+  }
+
+  /**
+   * Look up members by name and add the ones that can see a chat channel
+   * <p>
+   * Discord only takes one name per member request, so the requests are kept down instead: a name that starts with
+   * another name in the same message is answered by the shorter name's request, and at most
+   * {@value #MAX_LOOKUPS_PER_MESSAGE} requests are sent per message. Names over that are left alone this time.
+   *
+   * @return completes once every lookup finished and the snapshot includes the members that were found
+   */
+  public synchronized CompletableFuture<Void> lookup(String server, Set<String> names) {
+    var index = this.servers.get(server);
+    if (index == null || names.isEmpty()) return CompletableFuture.completedFuture(null);
+
+    var guild = index.channel.getGuild();
+    var now = System.currentTimeMillis();
+    var pending = new ArrayList<CompletableFuture<Void>>();
+
+    this.misses.values().removeIf(expiry -> expiry < now);
+
+    // query to the names it answers, shortest names first so they can answer the longer ones
+    var queries = new LinkedHashMap<String, List<String>>();
+
+    for (var name : names.stream().sorted(Comparator.comparingInt(String::length)).toList()) {
+      var key = missKey(guild.getIdLong(), name);
+      if (this.misses.containsKey(key)) continue;
+
+      var existing = this.lookups.get(key);
+      if (existing != null) {
+        pending.add(existing);
+        continue;
+      }
+
+      var query = queries.keySet().stream().filter(name::startsWith).findFirst().orElse(null);
+
+      if (query != null) {
+        queries.get(query).add(name);
+      } else if (queries.size() < MAX_LOOKUPS_PER_MESSAGE) {
+        queries.put(name, new ArrayList<>(List.of(name)));
+      }
+    }
+
+    for (var entry : queries.entrySet()) {
+      var covered = entry.getValue();
+      // every name shares the results, a shorter prefix matches more members
+      var limit = Math.min(MAX_LOOKUP_RESULTS * covered.size(), MAX_LOOKUP_LIMIT);
+      var future = new CompletableFuture<Void>();
+
+      for (var name : covered) {
+        this.lookups.put(missKey(guild.getIdLong(), name), future);
+      }
+      pending.add(future);
+
+      guild.retrieveMembersByPrefix(entry.getKey(), limit).onSuccess(members -> {
+        onLookupDone(guild.getIdLong(), covered, members.size() >= limit, future, members);
+      }).onError(e -> {
+        VelocityDiscord.LOGGER.debug("Failed to look up members `{}`", covered, e);
+        onLookupDone(guild.getIdLong(), covered, true, future, List.of());
+      });
+    }
+
+    return CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new));
+  }
+
+  /**
+   * A member joined, or their roles changed, so they might have gained or lost access to a channel
+   */
+  public synchronized void onMemberChanged(Member member) {
+    // might be a name that was looked up before they joined
+    this.misses.remove(missKey(member.getGuild().getIdLong(), member.getUser().getName()));
+
+    if (checkAccess(member)) schedulePublish();
+  }
+
+  public synchronized void onMemberRemoved(long guildId, long userId) {
+    var changed = false;
+
+    for (var index : this.channels.values()) {
+      if (index.channel.getGuild().getIdLong() == guildId) {
+        changed |= index.remove(userId);
+      }
+    }
+
+    if (changed) schedulePublish();
+  }
+
+  public synchronized void onUserRenamed(User user) {
+    // the new name might have been looked up in any guild
+    var suffix = "/" + user.getName().toLowerCase(Locale.ROOT);
+    this.misses.keySet().removeIf(key -> key.endsWith(suffix));
+
+    var changed = false;
+
+    for (var index : this.channels.values()) {
+      if (index.names.contains(user.getIdLong())) {
+        changed |= index.put(user.getIdLong(), user.getName());
+      }
+    }
+
+    if (changed) schedulePublish();
+  }
+
+  /**
+   * A role's permissions or a channel's permission overrides changed, check again who can see the affected channels
+   *
+   * @param channelId null if every channel of the guild is affected
+   * @param affected  the only members whose access could have changed, null if it could be anyone
+   */
+  public synchronized void onPermissionsChanged(
+    long guildId,
+    @Nullable Long channelId,
+    @Nullable Collection<Member> affected
+  ) {
+    // members that were found but couldn't see a channel might be able to now
+    var prefix = guildId + "/";
+    this.misses.keySet().removeIf(key -> key.startsWith(prefix));
+
+    var changed = false;
+
+    for (var index : this.channels.values()) {
+      if (index.channel.getGuild().getIdLong() != guildId) continue;
+      if (channelId != null && index.channel.getIdLong() != channelId) continue;
+
+      if (affected == null) {
+        changed |= index.checkAccess();
+      } else {
+        for (var member : affected) {
+          changed |= index.checkAccess(member);
+        }
+      }
+    }
+
+    if (changed) schedulePublish();
+  }
+
+  /**
+   * @param incomplete the results may have been cut off or the request failed, names that weren't found aren't misses
+   */
+  private synchronized void onLookupDone(
+    long guildId,
+    List<String> names,
+    boolean incomplete,
+    CompletableFuture<Void> future,
+    List<Member> members
+  ) {
+    for (var name : names) {
+      var key = missKey(guildId, name);
+      this.lookups.remove(key);
+
+      var added = false;
+      for (var member : members) {
+        if (member.getUser().getName().equalsIgnoreCase(name)) added |= checkAccess(member);
+      }
+
+      // not in the guild, or can't see any chat channel, either way the next message would look them up for nothing
+      if (!added && !incomplete) {
+        this.misses.put(key, System.currentTimeMillis() + MISS_EXPIRY_MILLIS);
+      }
+    }
+
+    // someone is waiting for these, publish right away instead of with the next batch
+    publishChanged();
+
+    future.complete(null);
+  }
+
+  private boolean checkAccess(Member member) {
+    var changed = false;
+
+    for (var index : this.channels.values()) {
+      if (index.channel.getGuild().getIdLong() == member.getGuild().getIdLong()) {
+        changed |= index.checkAccess(member);
+      }
+    }
+
+    return changed;
+  }
+
+  private static String missKey(long guildId, String name) {
+    return guildId + "/" + name.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Apply a new member cache size and completion count to the indexes that already exist
+   */
+  public synchronized void onConfigReload() {
+    for (var index : this.channels.values()) {
+      index.applyLimits();
+    }
+
+    publishChanged();
+  }
+
+  public synchronized void shutdown() {
+    if (this.publishTask != null) {
+      this.publishTask.cancel();
+      this.publishTask = null;
+    }
+  }
+
+  // JDA hands out the same channel object for as long as the session lives, a new session means new members too
+  private boolean sameChannels(Map<String, TextChannel> chatChannels) {
+    var current = this.servers;
+    var count = 0;
+
+    for (var entry : chatChannels.entrySet()) {
+      if (entry.getValue() == null) continue;
+
+      var index = current.get(entry.getKey());
+      if (index == null || index.channel != entry.getValue()) return false;
+
+      count++;
+    }
+
+    return count == current.size();
+  }
+
+  private Snapshot snapshot(String server) {
+    var index = this.servers.get(server);
+    return index == null ? EMPTY : index.snapshot;
+  }
+
+  private void schedulePublish() {
+    if (this.publishTask != null) return;
+
+    this.publishTask = VelocityDiscord.SERVER
+      .getScheduler()
+      .buildTask(VelocityDiscord.getInstance(), this::publishChanged)
+      .delay(PUBLISH_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+      .schedule();
+  }
+
+  private synchronized void publishChanged() {
+    if (this.publishTask != null) {
+      this.publishTask.cancel();
+      this.publishTask = null;
+    }
+
+    var published = false;
+
+    for (var index : this.channels.values()) {
+      published |= index.publish();
+    }
+
+    if (published) this.onPublished.run();
+  }
+
+  private static boolean isNameChar(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '.';
+  }
+
+  private static class ChannelIndex {
+    private final TextChannel channel;
+    private final MemberNames names;
+
+    private volatile Snapshot snapshot = EMPTY;
+    // members changed, the matcher has to be rebuilt
+    private boolean dirty = false;
+    // only the order of the completions changed
+    private boolean rankDirty = false;
+
+    private ChannelIndex(TextChannel channel) {
+      this.channel = channel;
+      this.names = new MemberNames(
+        VelocityDiscord.CONFIG.getDiscordConfig().leanMemberCache(),
+        () -> VelocityDiscord.CONFIG.getDiscordConfig().MEMBER_CACHE_SIZE,
+        () -> VelocityDiscord.CONFIG.getDiscordConfig().CHAT_COMPLETIONS_MAX
+      );
+    }
+
+    private void applyLimits() {
+      this.names.applyLimits();
+      this.dirty = true;
+    }
+
+    private void load() {
+      for (var member : this.channel.getMembers()) {
+        this.names.put(member.getIdLong(), member.getUser().getName());
+      }
+
+      this.dirty = true;
+    }
+
+    /**
+     * @return whether the member was added or removed
+     */
+    private boolean checkAccess(Member member) {
+      var id = member.getIdLong();
+      if (!member.hasAccess(this.channel)) return remove(id);
+
+      // put would count as a visit in lean mode, nothing happened that should keep them around longer
+      return !this.names.contains(id) && put(id, member.getUser().getName());
+    }
+
+    /**
+     * Check the members that are known, and in full mode the members JDA has cached that aren't
+     * <p>
+     * Only what changed is applied, so a permission change that doesn't affect the channel doesn't rebuild anything.
+     *
+     * @return whether any member was added or removed
+     */
+    private boolean checkAccess() {
+      var guild = this.channel.getGuild();
+      var changed = false;
+
+      for (var id : List.copyOf(this.names.names().keySet())) {
+        var member = guild.getMemberById(id);
+
+        // not cached by JDA in lean mode, kept until they show up again
+        if (member != null && !member.hasAccess(this.channel)) changed |= remove(id);
+      }
+
+      if (!this.names.lean()) {
+        for (var member : guild.getMemberCache()) {
+          if (!this.names.contains(member.getIdLong()) && member.hasAccess(this.channel)) {
+            changed |= put(member.getIdLong(), member.getUser().getName());
+          }
+        }
+      }
+
+      return changed;
+    }
+
+    private boolean put(long id, String name) {
+      if (!this.names.put(id, name)) return false;
+
+      this.dirty = true;
+      return true;
+    }
+
+    private boolean remove(long id) {
+      if (!this.names.remove(id)) return false;
+
+      this.dirty = true;
+      return true;
+    }
+
+    private void touch(long id, String name) {
+      if (this.names.touch(id, name)) this.rankDirty = true;
+    }
+
+    /**
+     * @return false if nothing changed since the last snapshot
+     */
+    private boolean publish() {
+      if (!this.dirty && !this.rankDirty) return false;
+
+      var previous = this.snapshot;
+      var mentions = previous.mentions;
+      var known = previous.names;
+
+      if (this.dirty) {
+        var names = this.names.names();
+        var builder = PatternTrie.<String>builder();
+        known = new HashSet<>(names.size() * 2);
+
+        for (var entry : names.entrySet()) {
+          builder.add("@" + entry.getValue(), "<@" + entry.getKey() + ">");
+          known.add(entry.getValue().toLowerCase(Locale.ROOT));
+        }
+
+        mentions = builder.build();
+      }
+
+      var completions = this.names.rankCompletions();
+
+      // keep the old list if it's the same, so players don't get sent anything
+      if (completions.equals(previous.completions)) {
+        completions = previous.completions;
+      }
+
+      this.snapshot = new Snapshot(mentions, completions, known);
+      this.dirty = false;
+      this.rankDirty = false;
+
+      return true;
+    }
+  }
+
+  private record Snapshot(PatternTrie<String> mentions, List<String> completions, Set<String> names) {}
+}
@@ -0,0 +1,168 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Names of the members of one chat channel, and which of them wrote there most recently
+ * <p>
+ * In lean mode only the members seen most recently are kept, the least recently seen one is dropped once there are
+ * more than the capacity. Not thread safe, {@link MemberIndex} only uses it while holding its lock.
+ */
+class MemberNames {
+  private final boolean lean;
+  private final IntSupplier capacity;
+  private final IntSupplier maxCompletions;
+
+  // user id to name, in the order members were seen, least recently seen first in lean mode
+  private final Map<Long, String> names;
+  // same as names but only the recently active members, most recently active last and at most as many as there are
+  // completions, so ranking never has to look a name up in the lean LRU, which would count as a visit
+  private final LinkedHashMap<Long, String> active = new LinkedHashMap<>();
+  // last entry of active, LinkedHashMap can't tell without walking it
+  private Long mostRecent;
+
+  /**
+   * @param capacity       members kept in lean mode, read every time so a reload applies without rebuilding
+   * @param maxCompletions completions offered to players, read every time as well
+   */
+  MemberNames(boolean lean, IntSupplier capacity, IntSupplier maxCompletions) {
+    this.lean = lean;
+    this.capacity = capacity;
+    this.maxCompletions = maxCompletions;
+
+    if (lean) {
+      this.names = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+          if (size() <= cacheSize()) return false;
+
+          removeActive(eldest.getKey());
+          return true;
+        }
+      };
+    } else {
+      this.names = new LinkedHashMap<>();
+    }
+  }
+
+  /**
+   * Read only view, iterating it doesn't count as a visit
+   */
+  Map<Long, String> names() {
+    return Collections.unmodifiableMap(this.names);
+  }
+
+  boolean lean() {
+    return this.lean;
+  }
+
+  boolean contains(long id) {
+    return this.names.containsKey(id);
+  }
+
+  /**
+   * Add or rename a member, also marks them as recently seen in lean mode
+   *
+   * @return whether the names changed
+   */
+  boolean put(long id, String name) {
+    var previous = this.names.put(id, name);
+    if (name.equals(previous)) return false;
+
+    // keeps its place in the ranking
+    this.active.replace(id, name);
+    return true;
+  }
+
+  /**
+   * @return whether the member was known
+   */
+  boolean remove(long id) {
+    if (this.names.remove(id) == null) return false;
+
+    removeActive(id);
+    return true;
+  }
+
+  /**
+   * The member wrote something, they move to the front of the completions
+   *
+   * @return whether the ranking changed
+   */
+  boolean touch(long id, String name) {
+    if (!this.names.containsKey(id)) return false;
+    if (this.mostRecent != null && this.mostRecent == id) return false;
+
+    this.active.remove(id);
+    this.active.put(id, name);
+    this.mostRecent = id;
+
+    trimActive();
+    return true;
+  }
+
+  /**
+   * Apply a new capacity and completion count
+   */
+  void applyLimits() {
+    if (this.lean) {
+      // least recently seen first, same as the eviction order
+      var overflow = this.names.size() - cacheSize();
+      var eldest = this.names.keySet().iterator();
+
+      while (overflow-- > 0 && eldest.hasNext()) {
+        removeActive(eldest.next());
+        eldest.remove();
+      }
+    }
+
+    trimActive();
+  }
+
+  /**
+   * Most recently active members first, then everyone else in the order they were seen, capped at the completion count
+   */
+  List<String> rankCompletions() {
+    var max = this.maxCompletions.getAsInt();
+    if (max <= 0) return List.of();
+
+    var completions = new LinkedHashSet<String>();
+
+    var recent = this.active.values().toArray(String[]::new);
+    for (var i = recent.length - 1; i >= 0 && completions.size() < max; i--) {
+      completions.add("@" + recent[i]);
+    }
+
+    for (var name : this.names.values()) {
+      if (completions.size() >= max) break;
+      completions.add("@" + name);
+    }
+
+    return List.copyOf(completions);
+  }
+
+  private int cacheSize() {
+    return Math.max(1, this.capacity.getAsInt());
+  }
+
+  private void removeActive(long id) {
+    this.active.remove(id);
+    if (this.mostRecent != null && this.mostRecent == id) this.mostRecent = null;
+  }
+
+  // only ever drops the oldest entries, so the most recent one stays
+  private void trimActive() {
+    var max = Math.max(this.maxCompletions.getAsInt(), 1);
+    var eldest = this.active.keySet().iterator();
+
+    for (var overflow = this.active.size() - max; overflow > 0 && eldest.hasNext(); overflow--) {
+      eldest.next();
+      eldest.remove();
+    }
+  }
+}
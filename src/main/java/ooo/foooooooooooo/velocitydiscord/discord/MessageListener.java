@@ -1,44 +1,60 @@
 package ooo.foooooooooooo.velocitydiscord.discord;
 
+import com.velocitypowered.api.proxy.server.RegisteredServer;
 import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleRemoveEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.api.events.role.update.GenericRoleUpdateEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
-import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.Component;
 import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
-import ooo.foooooooooooo.velocitydiscord.util.StringTemplate;
+import ooo.foooooooooooo.velocitydiscord.config.MinecraftConfig;
+import ooo.foooooooooooo.velocitydiscord.config.WebhookConfig;
+import ooo.foooooooooooo.velocitydiscord.util.ComponentTemplate;
+import ooo.foooooooooooo.velocitydiscord.util.LinkScanner;
+import ooo.foooooooooooo.velocitydiscord.util.OrderedExecutor;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 public class MessageListener extends ListenerAdapter {
-  private static final Pattern LINK_REGEX =
-    Pattern.compile("[^:/?#\\s]+:(?://)?(?:[^?#\\s]+)?(?:\\?[^#\\s]+)?(?:#\\S+)?");
   private static final Pattern WEBHOOK_ID_REGEX = Pattern.compile(".*/webhooks/\\d+/([a-zA-Z0-9_-]+)");
-  private final HashMap<String, Discord.Channels> serverChannels;
-  private final HashMap<Long, List<String>> channelToServersMap = new HashMap<>();
+  private static final int MAX_CACHED_STYLES = 10000;
+  private static final int RENDER_THREADS = 2;
+  private static final int DELIVERY_THREADS = 4;
+
+  // inbound messages are handled here instead of on JDA's event thread, which every gateway event waits on
+  private final OrderedExecutor renderer =
+    new OrderedExecutor("velocity-discord-inbound", RENDER_THREADS, MessageListener::queueSize);
+  private final OrderedExecutor delivery =
+    new OrderedExecutor("velocity-discord-delivery", DELIVERY_THREADS, MessageListener::queueSize);
+
+  // rebuilt on reload and swapped in as a whole, JDA's event thread only ever sees a complete snapshot
+  private volatile Routes routes = Routes.EMPTY;
 
   private JDA jda;
 
-  public MessageListener(HashMap<String, Discord.Channels> serverChannels) {
-    this.serverChannels = serverChannels;
-    onServerChannelsUpdated();
+  private static int queueSize() {
+    return VelocityDiscord.CONFIG.getMinecraftConfig().INBOUND_QUEUE_SIZE;
   }
 
-  public void onServerChannelsUpdated() {
-    this.channelToServersMap.clear();
-
-    for (var entry : this.serverChannels.entrySet()) {
-      this.channelToServersMap
-        .computeIfAbsent(entry.getValue().chatChannel.getIdLong(), (k) -> new ArrayList<>())
-        .add(entry.getKey());
-    }
+  public void onServerChannelsUpdated(Map<String, Discord.Channels> serverChannels) {
+    this.routes = Routes.build(serverChannels);
   }
 
   @Override
@@ -53,85 +69,150 @@ public class MessageListener extends ListenerAdapter {
     }
 
     var channel = event.getChannel().asTextChannel();
-    var targetServerNames = this.channelToServersMap.get(channel.getIdLong());
+    var groups = this.routes.get(channel.getIdLong());
 
-    if (targetServerNames == null) {
+    if (groups == null) {
       return;
     }
 
-    VelocityDiscord.LOGGER.trace(
-      "Received message from Discord channel {} for servers {}",
-      channel.getName(),
-      targetServerNames
-    );
+    // this runs for every message in every routed channel, don't build the server list just to throw it away
+    if (VelocityDiscord.LOGGER.isTraceEnabled()) {
+      VelocityDiscord.LOGGER.trace(
+        "Received message from Discord channel {} for servers {}",
+        channel.getName(),
+        Arrays.toString(groups)
+      );
+    }
+
+    var author = event.getAuthor();
+    if (author.getIdLong() == this.jda.getSelfUser().getIdLong()) {
+      VelocityDiscord.LOGGER.debug("ignoring own message");
+      return;
+    }
 
-    var messages = new HashMap<String, String>();
-    for (var serverName : targetServerNames) {
-      messages.put(serverName, serializeMinecraftMessage(event, serverName));
+    // messages from the same channel have to stay in order, different channels don't care
+    if (!this.renderer.execute(channel.getIdLong(), () -> render(event, groups))) {
+      VelocityDiscord.LOGGER.warn(
+        "Inbound queue is full ({} waiting, {} dropped so far), dropped message from {}",
+        this.renderer.pendingCount(),
+        this.renderer.rejectedCount(),
+        author.getName()
+      );
     }
+  }
 
-    for (var server : VelocityDiscord.SERVER.getAllServers()) {
-      var serverName = server.getServerInfo().getName();
-      if (!VelocityDiscord.CONFIG.EXCLUDED_SERVERS_RECEIVE_MESSAGES
-        && VelocityDiscord.CONFIG.serverDisabled(serverName)) {
+  /**
+   * Finish the messages already received, the listener is reused by the next session and starts new workers then
+   */
+  public void shutdown() {
+    this.renderer.shutdown(5, TimeUnit.SECONDS);
+    this.delivery.shutdown(5, TimeUnit.SECONDS);
+  }
+
+  private void render(MessageReceivedEvent event, ServerGroup[] groups) {
+    var author = event.getAuthor();
+    var isBot = author.isBot();
+    var authorId = author.getId();
+
+    for (var group : groups) {
+      if (isBot && !group.minecraftConfig.SHOW_BOT_MESSAGES) {
+        VelocityDiscord.LOGGER.debug("ignoring bot message");
+        continue;
+      }
+
+      if (group.webhookConfig.webhookIds.contains(authorId)) {
+        VelocityDiscord.LOGGER.debug("ignoring own message");
         continue;
       }
 
-      var message = messages.get(serverName);
-      if (message == null) continue;
+      var message = serializeMinecraftMessage(event, group);
 
-      server.sendMessage(MiniMessage.miniMessage().deserialize(message).asComponent());
+      // each server gets its messages in order, a server with many players doesn't hold up the others
+      for (var recipient : group.recipients) {
+        var server = recipient.getServerInfo().getName();
+
+        if (!this.delivery.execute(server, () -> recipient.sendMessage(message))) {
+          VelocityDiscord.LOGGER.warn(
+            "Delivery queue is full ({} waiting, {} dropped so far), dropped message for {}",
+            this.delivery.pendingCount(),
+            this.delivery.rejectedCount(),
+            server
+          );
+        }
+      }
     }
   }
 
-  private String serializeMinecraftMessage(MessageReceivedEvent event, String server) {
-    var serverConfig = VelocityDiscord.CONFIG.getServerConfig(server);
-    var serverMinecraftConfig = serverConfig.getMinecraftConfig();
+  // region Member style invalidation
 
-    var author = event.getAuthor();
-    if (!serverConfig.getMinecraftConfig().SHOW_BOT_MESSAGES && author.isBot()) {
-      VelocityDiscord.LOGGER.debug("ignoring bot message");
-      return null;
+  @Override
+  public void onGuildMemberRoleAdd(@Nonnull GuildMemberRoleAddEvent event) {
+    forgetStyle(event.getMember().getIdLong());
+  }
+
+  @Override
+  public void onGuildMemberRoleRemove(@Nonnull GuildMemberRoleRemoveEvent event) {
+    forgetStyle(event.getMember().getIdLong());
+  }
+
+  @Override
+  public void onGuildMemberRemove(@Nonnull GuildMemberRemoveEvent event) {
+    forgetStyle(event.getUser().getIdLong());
+  }
+
+  // a color or position change can affect every member with the role
+  @Override
+  public void onGenericRoleUpdate(@Nonnull GenericRoleUpdateEvent event) {
+    forgetStyles();
+  }
+
+  @Override
+  public void onRoleDelete(@Nonnull RoleDeleteEvent event) {
+    forgetStyles();
+  }
+
+  private void forgetStyle(long memberId) {
+    for (var groups : this.routes.groups) {
+      for (var group : groups) group.styles.remove(memberId);
     }
+  }
 
-    if (author.getId().equals(this.jda.getSelfUser().getId()) || (
-      author.getId().equals(serverConfig.getDiscordConfig().WEBHOOK.webhookId))) {
-      VelocityDiscord.LOGGER.debug("ignoring own message");
-      return null;
+  private void forgetStyles() {
+    for (var groups : this.routes.groups) {
+      for (var group : groups) group.styles.clear();
     }
+  }
+
+  // endregion
 
+  private Component serializeMinecraftMessage(MessageReceivedEvent event, ServerGroup group) {
+    var serverMinecraftConfig = group.minecraftConfig;
+    var author = event.getAuthor();
     var message = event.getMessage();
-    var guild = event.getGuild();
 
-    var color = Color.white;
     var nickname = author.getName(); // Nickname defaults to username
-    var rolePrefix = "";
+    var style = MemberStyle.DEFAULT;
 
-    var member = guild.getMember(author);
+    // comes with the message, so it's there even when members aren't cached
+    var member = event.getMember();
     if (member != null) {
-      color = member.getColor();
-      if (color == null) {
-        color = Color.white;
-      }
       nickname = member.getEffectiveName();
+      if (group.styles.size() >= MAX_CACHED_STYLES) group.styles.clear();
+      style = group.styles.computeIfAbsent(member.getIdLong(), (k) -> memberStyle(member, group.minecraftConfig));
 
-      // Get the role prefix
-      var highestRole = member
-        .getRoles()
-        .stream()
-        .filter(role -> !serverMinecraftConfig.rolePrefixes.getPrefixForRole(role.getId()).isEmpty())
-        .findFirst();
-
-      rolePrefix =
-        highestRole.map(role -> serverMinecraftConfig.rolePrefixes.getPrefixForRole(role.getId())).orElse("");
+      // role events only arrive for cached members, in lean mode the member's roles have to be checked instead
+      if (VelocityDiscord.CONFIG.getDiscordConfig().leanMemberCache() && style.roles != rolesFingerprint(member)) {
+        style = memberStyle(member, group.minecraftConfig);
+        group.styles.put(member.getIdLong(), style);
+      }
     }
 
-    var hex = "#" + Integer.toHexString(color.getRGB()).substring(2);
-
-    // parse configured message formats
-    var discord_chunk = new StringTemplate(serverMinecraftConfig.DISCORD_CHUNK_FORMAT)
+    // formats are parsed once, values go in as components and are never parsed themselves
+    var discord_chunk = ComponentTemplate
+      .of(serverMinecraftConfig.DISCORD_CHUNK_FORMAT)
+      .builder()
       .add("discord_color", serverMinecraftConfig.DISCORD_COLOR)
-      .toString();
+      .build();
 
     var display_name = author.getGlobalName();
 
@@ -139,63 +220,196 @@ public class MessageListener extends ListenerAdapter {
       display_name = author.getName();
     }
 
-    var username_chunk = new StringTemplate(serverMinecraftConfig.USERNAME_CHUNK_FORMAT)
-      .add("role_color", hex)
-      .add("username", escapeTags(author.getName()))
-      .add("display_name", escapeTags(display_name))
-      .add("nickname", escapeTags(nickname))
-      .toString();
+    var username_chunk = ComponentTemplate
+      .of(serverMinecraftConfig.USERNAME_CHUNK_FORMAT)
+      .builder()
+      .add("role_color", style.color)
+      .add("username", author.getName())
+      .add("display_name", display_name)
+      .add("nickname", nickname)
+      .build();
 
-    var attachment_chunk = serverMinecraftConfig.ATTACHMENT_FORMAT;
-    var message_chunk = new StringTemplate(serverMinecraftConfig.MESSAGE_FORMAT)
-      .add("discord_chunk", discord_chunk)
-      .add("role_prefix", escapeTags(rolePrefix))
-      .add("username_chunk", username_chunk)
-      .add("message", message.getContentDisplay());
+    var content = message.getContentDisplay();
+
+    var message_format = serverMinecraftConfig.MESSAGE_FORMAT;
 
-    var attachmentChunks = new ArrayList<String>();
+    // Remove leading whitespace from attachments if there's no content
+    if (content.isBlank()) {
+      message_format = message_format.replace(" {attachments}", "{attachments}");
+    }
+
+    var attachments = Component.text();
 
-    List<Message.Attachment> attachments = new ArrayList<>();
     if (serverMinecraftConfig.SHOW_ATTACHMENTS) {
-      attachments = message.getAttachments();
+      var attachment_format = ComponentTemplate.of(serverMinecraftConfig.ATTACHMENT_FORMAT);
+
+      var first = true;
+      for (var attachment : message.getAttachments()) {
+        if (!first) attachments.append(Component.space());
+        first = false;
+
+        attachments.append(attachment_format
+          .builder()
+          .add("url", attachment.getUrl())
+          .add("attachment_color", serverMinecraftConfig.ATTACHMENT_COLOR)
+          .build());
+      }
     }
 
-    for (var attachment : attachments) {
-      var chunk = new StringTemplate(attachment_chunk)
-        .add("url", attachment.getUrl())
-        .add("attachment_color", serverMinecraftConfig.ATTACHMENT_COLOR)
-        .toString();
+    return ComponentTemplate
+      .of(message_format)
+      .builder()
+      .add("discord_chunk", discord_chunk)
+      .add("role_prefix", style.prefix)
+      .add("username_chunk", username_chunk)
+      .add("message", formatLinks(content, serverMinecraftConfig))
+      .add("attachments", attachments.build())
+      .build();
+  }
 
-      attachmentChunks.add(chunk);
+  private static MemberStyle memberStyle(Member member, MinecraftConfig serverMinecraftConfig) {
+    var color = member.getColor();
+    if (color == null) {
+      color = Color.white;
     }
 
-    var content = message.getContentDisplay();
+    var hex = "#" + Integer.toHexString(color.getRGB()).substring(2);
 
-    // Remove leading whitespace from attachments if there's no content
-    if (content.isBlank()) {
-      message_chunk = message_chunk.replace(" {attachments}", "{attachments}");
+    // roles are sorted from highest to lowest, the highest one with a prefix wins
+    var rolePrefix = "";
+    if (!serverMinecraftConfig.rolePrefixes.isEmpty()) {
+      for (var role : member.getRoles()) {
+        rolePrefix = serverMinecraftConfig.rolePrefixes.getPrefixForRole(role.getIdLong());
+        if (!rolePrefix.isEmpty()) break;
+      }
     }
 
-    if (serverMinecraftConfig.LINK_FORMAT.isPresent()) {
-      // Replace links with the link format
-      content = LINK_REGEX.matcher(content).replaceAll(match -> {
-        var url = match.group();
-        var replacement = new StringTemplate(serverMinecraftConfig.LINK_FORMAT.get())
-          .add("url", url)
-          .add("link_color", serverMinecraftConfig.LINK_COLOR)
-          .toString();
+    return new MemberStyle(ComponentTemplate.of(rolePrefix).builder().build(), hex, rolesFingerprint(member));
+  }
+
+  private static long rolesFingerprint(Member member) {
+    var fingerprint = 1L;
+    for (var role : member.getRoles()) fingerprint = 31 * fingerprint + role.getIdLong();
+    return fingerprint;
+  }
 
-        return Matcher.quoteReplacement(replacement);
-      });
+  private Component formatLinks(String content, MinecraftConfig serverMinecraftConfig) {
+    if (serverMinecraftConfig.LINK_FORMAT.isEmpty()) {
+      return Component.text(content);
     }
 
-    message_chunk.add("message", content);
-    message_chunk.add("attachments", String.join(" ", attachmentChunks));
+    var links = new LinkScanner(content);
+    if (!links.find()) {
+      return Component.text(content);
+    }
+
+    // Replace links with the link format
+    var link_format = ComponentTemplate.of(serverMinecraftConfig.LINK_FORMAT.get());
+    var builder = Component.text();
+    var start = 0;
+
+    do {
+      if (links.start() > start) builder.append(Component.text(content.substring(start, links.start())));
+
+      builder.append(link_format
+        .builder()
+        .add("url", content.substring(links.start(), links.end()))
+        .add("link_color", serverMinecraftConfig.LINK_COLOR)
+        .build());
+
+      start = links.end();
+    } while (links.find());
+
+    if (start < content.length()) builder.append(Component.text(content.substring(start)));
+
+    return builder.build();
+  }
+
+  /**
+   * Chat channel id to the groups of servers that receive its messages, channel ids are kept sorted for a binary
+   * search
+   */
+  private record Routes(long[] channelIds, ServerGroup[][] groups) {
+    private static final Routes EMPTY = new Routes(new long[0], new ServerGroup[0][]);
+
+    private static Routes build(Map<String, Discord.Channels> serverChannels) {
+      // configs don't override equals, so servers are grouped by config identity
+      var channels = new TreeMap<Long, Map<GroupKey, List<String>>>();
+
+      for (var entry : serverChannels.entrySet()) {
+        var serverName = entry.getKey();
+        if (!VelocityDiscord.CONFIG.EXCLUDED_SERVERS_RECEIVE_MESSAGES
+          && VelocityDiscord.CONFIG.serverDisabled(serverName)) {
+          continue;
+        }
+
+        var serverConfig = VelocityDiscord.CONFIG.getServerConfig(serverName);
+        var key = new GroupKey(serverConfig.getMinecraftConfig(), serverConfig.getDiscordConfig().WEBHOOK);
+
+        channels
+          .computeIfAbsent(entry.getValue().chatChannel.getIdLong(), (k) -> new LinkedHashMap<>())
+          .computeIfAbsent(key, (k) -> new ArrayList<>())
+          .add(serverName);
+      }
+
+      var channelIds = new long[channels.size()];
+      var groups = new ServerGroup[channels.size()][];
+
+      var i = 0;
+      for (var channel : channels.entrySet()) {
+        channelIds[i] = channel.getKey();
+        groups[i] = channel
+          .getValue()
+          .entrySet()
+          .stream()
+          .map(group -> ServerGroup.of(group.getKey(), group.getValue()))
+          .toArray(ServerGroup[]::new);
+        i++;
+      }
+
+      return new Routes(channelIds, groups);
+    }
 
-    return message_chunk.toString();
+    @Nullable
+    private ServerGroup[] get(long channelId) {
+      var i = Arrays.binarySearch(this.channelIds, channelId);
+      return i >= 0 ? this.groups[i] : null;
+    }
   }
 
-  private String escapeTags(String input) {
-    return input.replace("<", "ᐸ").replace(">", "ᐳ");
+  private record ServerGroup(
+    MinecraftConfig minecraftConfig,
+    WebhookConfig webhookConfig,
+    String[] servers,
+    RegisteredServer[] recipients,
+    // role prefix and color by member id, dropped when their roles change
+    Map<Long, MemberStyle> styles
+  ) {
+    private static ServerGroup of(GroupKey key, List<String> servers) {
+      // servers the proxy doesn't know are skipped, same as when delivering to every registered server
+      var recipients = servers
+        .stream()
+        .flatMap(server -> VelocityDiscord.SERVER.getServer(server).stream())
+        .toArray(RegisteredServer[]::new);
+
+      return new ServerGroup(
+        key.minecraftConfig,
+        key.webhookConfig,
+        servers.toArray(String[]::new),
+        recipients,
+        new ConcurrentHashMap<>()
+      );
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.toString(this.servers);
+    }
+  }
+
+  private record GroupKey(MinecraftConfig minecraftConfig, WebhookConfig webhookConfig) {}
+
+  private record MemberStyle(Component prefix, String color, long roles) {
+    private static final MemberStyle DEFAULT = new MemberStyle(Component.empty(), "#ffffff", 1L);
   }
 }
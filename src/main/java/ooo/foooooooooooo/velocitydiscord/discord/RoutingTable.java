@@ -0,0 +1,203 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.config.DiscordChatConfig;
+import ooo.foooooooooooo.velocitydiscord.config.DiscordChatConfig.MessageCategory;
+import ooo.foooooooooooo.velocitydiscord.config.DiscordChatConfig.UserMessageType;
+import ooo.foooooooooooo.velocitydiscord.config.ServerConfig;
+import ooo.foooooooooooo.velocitydiscord.discord.message.WebhookPool;
+import ooo.foooooooooooo.velocitydiscord.util.Template;
+
+import javax.annotation.Nullable;
+import java.awt.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Everything needed to send a message of a category for a server, resolved once per config reload
+ * <p>
+ * The table is immutable, a reload builds a new one and swaps it in, so event handlers never see a half updated
+ * table. Servers without an entry use the routes of the main config.
+ */
+public final class RoutingTable {
+  private static final MessageCategory[] CATEGORIES = MessageCategory.values();
+
+  private final Map<String, Route[]> servers;
+  private final Route[] fallback;
+
+  private RoutingTable(Map<String, Route[]> servers, Route[] fallback) {
+    this.servers = servers;
+    this.fallback = fallback;
+  }
+
+  /**
+   * @param server null for proxy messages
+   */
+  public Route get(@Nullable String server, MessageCategory category) {
+    var routes = server == null ? this.fallback : this.servers.getOrDefault(server, this.fallback);
+    return routes[category.ordinal()];
+  }
+
+  /**
+   * @param channels channels per server, empty while the bot isn't ready, routes then have no channel or webhooks
+   */
+  static RoutingTable compile(
+    Map<String, Discord.Channels> channels,
+    @Nullable Discord.Channels defaultChannels,
+    @Nullable TextChannel proxyStartChannel,
+    @Nullable TextChannel proxyStopChannel
+  ) {
+    var proxyConfig = VelocityDiscord.CONFIG.getDiscordChatConfig();
+
+    // proxy messages don't belong to a server, every server shares the same routes for them
+    var proxyStart = new Route(
+      proxyStartChannel,
+      null,
+      template(proxyConfig.PROXY_START_FORMAT),
+      proxyConfig.PROXY_START_EMBED_COLOR,
+      type(proxyConfig.PROXY_START_TYPE),
+      null,
+      null
+    );
+    var proxyStop = new Route(
+      proxyStopChannel,
+      null,
+      template(proxyConfig.PROXY_STOP_FORMAT),
+      proxyConfig.PROXY_STOP_EMBED_COLOR,
+      type(proxyConfig.PROXY_STOP_TYPE),
+      null,
+      null
+    );
+
+    // servers with an override section too, so one registered after the reload still gets its own formats
+    var names = new HashSet<>(VelocityDiscord.CONFIG.getOverriddenServers());
+    for (var server : VelocityDiscord.SERVER.getAllServers()) {
+      names.add(server.getServerInfo().getName());
+    }
+
+    var servers = new HashMap<String, Route[]>();
+
+    for (var name : names) {
+      var config = VelocityDiscord.CONFIG.getServerConfig(name);
+      var serverChannels = channels.getOrDefault(name, defaultChannels);
+
+      servers.put(name, compileServer(config, serverChannels, proxyStart, proxyStop));
+    }
+
+    var fallback = compileServer(VelocityDiscord.CONFIG, defaultChannels, proxyStart, proxyStop);
+
+    return new RoutingTable(Map.copyOf(servers), fallback);
+  }
+
+  private static Route[] compileServer(
+    ServerConfig config,
+    @Nullable Discord.Channels channels,
+    Route proxyStart,
+    Route proxyStop
+  ) {
+    var chat = config.getDiscordChatConfig();
+    var routes = new Route[CATEGORIES.length];
+
+    for (var category : CATEGORIES) {
+      routes[category.ordinal()] = switch (category) {
+        case PROXY_START -> proxyStart;
+        case PROXY_STOP -> proxyStop;
+        default -> compileRoute(chat, category, channels);
+      };
+    }
+
+    return routes;
+  }
+
+  private static Route compileRoute(
+    DiscordChatConfig chat,
+    MessageCategory category,
+    @Nullable Discord.Channels channels
+  ) {
+    var format = switch (category) {
+      case MESSAGE -> chat.MESSAGE_FORMAT;
+      case DEATH -> chat.DEATH_FORMAT;
+      case ADVANCEMENT -> chat.ADVANCEMENT_FORMAT;
+      case JOIN -> chat.JOIN_FORMAT;
+      case LEAVE -> chat.LEAVE_FORMAT;
+      case DISCONNECT -> chat.DISCONNECT_FORMAT;
+      case SERVER_SWITCH -> chat.SERVER_SWITCH_FORMAT;
+      case SERVER_START -> chat.SERVER_START_FORMAT;
+      case SERVER_STOP -> chat.SERVER_STOP_FORMAT;
+      case PROXY_START, PROXY_STOP -> throw new IllegalArgumentException("Not a server category: " + category);
+    };
+
+    var color = switch (category) {
+      case MESSAGE -> chat.MESSAGE_EMBED_COLOR;
+      case DEATH -> chat.DEATH_EMBED_COLOR;
+      case ADVANCEMENT -> chat.ADVANCEMENT_EMBED_COLOR;
+      case JOIN -> chat.JOIN_EMBED_COLOR;
+      case LEAVE -> chat.LEAVE_EMBED_COLOR;
+      case DISCONNECT -> chat.DISCONNECT_EMBED_COLOR;
+      case SERVER_SWITCH -> chat.SERVER_SWITCH_EMBED_COLOR;
+      case SERVER_START -> chat.SERVER_START_EMBED_COLOR;
+      case SERVER_STOP -> chat.SERVER_STOP_EMBED_COLOR;
+      case PROXY_START, PROXY_STOP -> Optional.<Color>empty();
+    };
+
+    var type = switch (category) {
+      case MESSAGE -> chat.MESSAGE_TYPE;
+      case DEATH -> chat.DEATH_TYPE;
+      case ADVANCEMENT -> chat.ADVANCEMENT_TYPE;
+      case JOIN -> chat.JOIN_TYPE;
+      case LEAVE -> chat.LEAVE_TYPE;
+      case DISCONNECT -> chat.DISCONNECT_TYPE;
+      case SERVER_SWITCH -> chat.SERVER_SWITCH_TYPE;
+      case SERVER_START -> type(chat.SERVER_START_TYPE);
+      case SERVER_STOP -> type(chat.SERVER_STOP_TYPE);
+      case PROXY_START, PROXY_STOP -> UserMessageType.TEXT;
+    };
+
+    var webhookConfig = chat.getWebhookConfig(category);
+
+    return new Route(
+      channels == null ? null : channels.getChannelForCategory(category),
+      channels == null ? null : channels.getWebhooksForCategory(category),
+      template(format),
+      color,
+      type,
+      webhookConfig == null ? null : Template.compile(webhookConfig.AVATAR_URL),
+      webhookConfig == null ? null : Template.compile(webhookConfig.USERNAME)
+    );
+  }
+
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private static @Nullable Template template(Optional<String> format) {
+    return format.map(Template::compile).orElse(null);
+  }
+
+  private static UserMessageType type(DiscordChatConfig.ServerMessageType type) {
+    return switch (type) {
+      case TEXT -> UserMessageType.TEXT;
+      case EMBED -> UserMessageType.EMBED;
+    };
+  }
+
+  /**
+   * @param channel  null if the bot isn't ready yet or the channel couldn't be loaded
+   * @param webhooks null if the category isn't sent through webhooks
+   * @param format   null if the category is disabled
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  public record Route(
+    @Nullable TextChannel channel,
+    @Nullable WebhookPool webhooks,
+    @Nullable Template format,
+    Optional<Color> color,
+    UserMessageType type,
+    @Nullable Template webhookAvatar,
+    @Nullable Template webhookUsername
+  ) {
+    public boolean enabled() {
+      return this.format != null;
+    }
+  }
+}
@@ -1,8 +1,10 @@
 package ooo.foooooooooooo.velocitydiscord.discord.message;
 
+import ooo.foooooooooooo.velocitydiscord.config.DiscordChatConfig;
 import ooo.foooooooooooo.velocitydiscord.discord.Discord;
 
 public interface IQueuedMessage {
   void send(Discord discord);
-}
 
+  DiscordChatConfig.MessageCategory category();
+}
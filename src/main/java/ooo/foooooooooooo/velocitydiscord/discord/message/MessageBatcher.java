@@ -0,0 +1,194 @@
+package ooo.foooooooooooo.velocitydiscord.discord.message;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.utils.messages.MessageCreateData;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.util.TaskScheduler;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Collects text lines and embeds per channel for a short window and sends them as a single message
+ * <p>
+ * A batch only ever holds one kind of message, adding the other kind flushes it first so ordering is kept. Batches
+ * are flushed early when the next line would not fit into a single message.
+ */
+public class MessageBatcher {
+  private final Map<Long, Batch> batches = new HashMap<>();
+  private final Sink sink;
+  private final TaskScheduler scheduler;
+  private final IntSupplier window;
+  private final Logger logger;
+
+  public MessageBatcher(Sink sink) {
+    this(
+      sink,
+      TaskScheduler.velocity(),
+      () -> VelocityDiscord.CONFIG.getDiscordConfig().OUTBOUND.BATCH_WINDOW_MILLIS,
+      VelocityDiscord.LOGGER
+    );
+  }
+
+  /**
+   * @param window batch window in milliseconds, read whenever a batch starts so it can follow config reloads
+   */
+  public MessageBatcher(Sink sink, TaskScheduler scheduler, IntSupplier window, Logger logger) {
+    this.sink = sink;
+    this.scheduler = scheduler;
+    this.window = window;
+    this.logger = logger;
+  }
+
+  public synchronized void add(TextChannel channel, String line, OutboundScheduler.Priority priority) {
+    if (channel == null) {
+      this.logger.error("Failed to batch message: channel is null");
+      return;
+    }
+
+    var batch = getBatch(channel);
+
+    if (!batch.embeds.isEmpty()) {
+      flush(batch);
+    }
+
+    // can't be merged with anything, let discord deal with it
+    if (line.length() >= Message.MAX_CONTENT_LENGTH) {
+      flush(batch);
+      this.sink.send(channel, MessageCreateData.fromContent(line), priority);
+      return;
+    }
+
+    if (!batch.text.isEmpty() && batch.text.length() + 1 + line.length() > Message.MAX_CONTENT_LENGTH) {
+      flush(batch);
+    }
+
+    if (!batch.text.isEmpty()) {
+      batch.text.append('\n');
+    }
+
+    batch.text.append(line);
+    batch.raise(priority);
+
+    schedule(batch);
+  }
+
+  public synchronized void addEmbed(TextChannel channel, MessageEmbed embed, OutboundScheduler.Priority priority) {
+    if (channel == null) {
+      this.logger.error("Failed to batch embed: channel is null");
+      return;
+    }
+
+    var batch = getBatch(channel);
+
+    if (!batch.text.isEmpty()) {
+      flush(batch);
+    }
+
+    if (batch.embeds.size() >= Message.MAX_EMBED_COUNT
+      || batch.embedLength + embed.getLength() > MessageEmbed.EMBED_MAX_LENGTH_BOT) {
+      flush(batch);
+    }
+
+    batch.embeds.add(embed);
+    batch.embedLength += embed.getLength();
+    batch.raise(priority);
+
+    schedule(batch);
+  }
+
+  /**
+   * Send everything that is still waiting, used before shutting down
+   */
+  public synchronized void flushAll() {
+    for (var batch : this.batches.values()) {
+      flush(batch);
+    }
+
+    this.batches.clear();
+  }
+
+  private Batch getBatch(TextChannel channel) {
+    var batch = this.batches.get(channel.getIdLong());
+
+    // channel objects are replaced when channels are reloaded
+    if (batch == null || batch.channel != channel) {
+      if (batch != null) flush(batch);
+
+      batch = new Batch(channel);
+      this.batches.put(channel.getIdLong(), batch);
+    }
+
+    return batch;
+  }
+
+  private void schedule(Batch batch) {
+    if (batch.task != null) return;
+
+    batch.task = this.scheduler.schedule(
+      () -> onWindowElapsed(batch),
+      this.window.getAsInt(),
+      TimeUnit.MILLISECONDS
+    );
+  }
+
+  private synchronized void onWindowElapsed(Batch batch) {
+    // task already cancelled by an early flush
+    if (batch.task == null) return;
+
+    batch.task = null;
+    flush(batch);
+  }
+
+  private void flush(Batch batch) {
+    if (batch.task != null) {
+      batch.task.cancel();
+      batch.task = null;
+    }
+
+    if (!batch.text.isEmpty()) {
+      this.sink.send(batch.channel, MessageCreateData.fromContent(batch.text.toString()), batch.priority);
+      batch.text.setLength(0);
+    }
+
+    if (!batch.embeds.isEmpty()) {
+      this.sink.send(batch.channel, MessageCreateData.fromEmbeds(batch.embeds), batch.priority);
+      batch.embeds = new ArrayList<>();
+      batch.embedLength = 0;
+    }
+
+    batch.priority = OutboundScheduler.Priority.LOW;
+  }
+
+  @FunctionalInterface
+  public interface Sink {
+    void send(TextChannel channel, MessageCreateData message, OutboundScheduler.Priority priority);
+  }
+
+  private static class Batch {
+    private final TextChannel channel;
+    private final StringBuilder text = new StringBuilder();
+    private List<MessageEmbed> embeds = new ArrayList<>();
+    private int embedLength = 0;
+    // a merged message is sent with the highest priority of its lines
+    private OutboundScheduler.Priority priority = OutboundScheduler.Priority.LOW;
+    private TaskScheduler.Task task;
+
+    private Batch(TextChannel channel) {
+      this.channel = channel;
+    }
+
+    private void raise(OutboundScheduler.Priority priority) {
+      if (priority.ordinal() < this.priority.ordinal()) {
+        this.priority = priority;
+      }
+    }
+  }
+}
@@ -0,0 +1,332 @@
+package ooo.foooooooooooo.velocitydiscord.discord.message;
+
+import net.dv8tion.jda.api.requests.RestAction;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.config.DiscordChatConfig.MessageCategory;
+import ooo.foooooooooooo.velocitydiscord.config.OutboundConfig;
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Sits between {@link ooo.foooooooooooo.velocitydiscord.discord.Discord} and JDA
+ * <p>
+ * Every route (a channel or a webhook, each has its own rate limit bucket) only has one request handed to JDA at a
+ * time, everything else waits here in priority lanes. This way a server stop notice doesn't end up behind thousands
+ * of chat lines in JDA's requester, and old backlog can be shed before it's ever sent.
+ */
+public class OutboundScheduler {
+  private final Map<Long, Route> routes = new ConcurrentHashMap<>();
+
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong collapsed = new AtomicLong();
+
+  private final Supplier<OutboundConfig> config;
+  private final LongSupplier clock;
+  private final Logger logger;
+
+  public OutboundScheduler() {
+    this(() -> VelocityDiscord.CONFIG.getDiscordConfig().OUTBOUND, System::nanoTime, VelocityDiscord.LOGGER);
+  }
+
+  /**
+   * @param config read on every dispatch so a reload applies right away
+   * @param clock  nanos, only compared with itself
+   */
+  OutboundScheduler(Supplier<OutboundConfig> config, LongSupplier clock, Logger logger) {
+    this.config = config;
+    this.clock = clock;
+    this.logger = logger;
+  }
+
+  public static Priority priorityOf(MessageCategory category) {
+    return switch (category) {
+      case PROXY_START, PROXY_STOP, SERVER_START, SERVER_STOP -> Priority.HIGH;
+      case JOIN, LEAVE, DISCONNECT, SERVER_SWITCH, DEATH, ADVANCEMENT -> Priority.NORMAL;
+      case MESSAGE -> Priority.LOW;
+    };
+  }
+
+  /**
+   * @param route       id of the channel or webhook the request goes to
+   * @param collapseKey identifies the player a join/leave belongs to, null if it can't be collapsed
+   * @param action      creates the request once it's this entry's turn
+   */
+  public void submit(
+    long route,
+    MessageCategory category,
+    @Nullable String collapseKey,
+    Supplier<? extends RestAction<?>> action
+  ) {
+    submit(route, priorityOf(category), category, collapseKey, action);
+  }
+
+  public void submit(
+    long route,
+    Priority priority,
+    @Nullable MessageCategory category,
+    @Nullable String collapseKey,
+    Supplier<? extends RestAction<?>> action
+  ) {
+    submit(route, priority, category, collapseKey, action, null);
+  }
+
+  /**
+   * @param done called once the entry is finished with, whether it was sent, failed, dropped or collapsed
+   */
+  public void submit(
+    long route,
+    Priority priority,
+    @Nullable MessageCategory category,
+    @Nullable String collapseKey,
+    Supplier<? extends RestAction<?>> action,
+    @Nullable Runnable done
+  ) {
+    enqueue(route, priority, category, collapseKey, () -> request(action.get()), done);
+  }
+
+  // everything past here only sees Request, so tests don't need a JDA instance
+  void enqueue(
+    long route,
+    Priority priority,
+    @Nullable MessageCategory category,
+    @Nullable String collapseKey,
+    Supplier<Request> action,
+    @Nullable Runnable done
+  ) {
+    var entry = new Entry(priority, category, collapseKey, action, done, this.clock.getAsLong());
+    var target = this.routes.computeIfAbsent(route, Route::new);
+
+    Entry collapsedWith;
+
+    synchronized (target) {
+      collapsedWith = collapse(target, entry);
+
+      if (collapsedWith == null) {
+        target.lanes[priority.ordinal()].add(entry);
+      }
+    }
+
+    if (collapsedWith != null) {
+      finish(collapsedWith);
+      finish(entry);
+      return;
+    }
+
+    dispatch(target);
+  }
+
+  /**
+   * Hand everything that is still waiting to JDA in priority order, used before shutting down
+   */
+  public void drainAll() {
+    for (var route : this.routes.values()) {
+      var entries = new ArrayList<Entry>();
+
+      synchronized (route) {
+        for (var lane : route.lanes) {
+          entries.addAll(lane);
+          lane.clear();
+        }
+      }
+
+      for (var entry : entries) {
+        try {
+          entry.action.get().queue(() -> {}, error -> this.logger.error("Failed to send queued message", error));
+        } catch (Exception e) {
+          this.logger.error("Failed to send queued message", e);
+        }
+
+        finish(entry);
+      }
+    }
+  }
+
+  public long droppedCount() {
+    return this.dropped.get();
+  }
+
+  public long collapsedCount() {
+    return this.collapsed.get();
+  }
+
+  private void dispatch(Route route) {
+    // loops instead of recursing when a send fails before it reaches JDA (missing permissions, deleted channel), so a
+    // long backlog on a broken route can't run out of stack, only the async callbacks come back in here
+    while (true) {
+      Entry next;
+      var dropped = new ArrayList<Entry>(0);
+
+      synchronized (route) {
+        if (route.inFlight) return;
+
+        shed(route, dropped);
+        next = poll(route);
+
+        if (next != null) {
+          route.inFlight = true;
+        }
+      }
+
+      for (var entry : dropped) {
+        finish(entry);
+      }
+
+      if (next == null) return;
+
+      try {
+        next.action.get().queue(() -> complete(route, next), error -> {
+          this.logger.error("Failed to send message to route {}", route.id, error);
+          complete(route, next);
+        });
+
+        return;
+      } catch (Exception e) {
+        this.logger.error("Failed to send message to route {}", route.id, e);
+
+        synchronized (route) {
+          route.inFlight = false;
+        }
+
+        finish(next);
+      }
+    }
+  }
+
+  private void complete(Route route, Entry entry) {
+    synchronized (route) {
+      route.inFlight = false;
+    }
+
+    finish(entry);
+    dispatch(route);
+  }
+
+  private void finish(Entry entry) {
+    if (entry.done == null) return;
+
+    try {
+      entry.done.run();
+    } catch (Exception e) {
+      this.logger.error("Failed to finish outbound message", e);
+    }
+  }
+
+  // must hold the route lock
+  private Entry poll(Route route) {
+    for (var lane : route.lanes) {
+      var entry = lane.poll();
+      if (entry != null) return entry;
+    }
+
+    return null;
+  }
+
+  // must hold the route lock
+  private void shed(Route route, ArrayList<Entry> dropped) {
+    var config = this.config.get();
+    if (!config.sheddingEnabled() || config.CHAT_BACKLOG_POLICY != OutboundConfig.BacklogPolicy.DROP_OLDEST) return;
+
+    var deadline = this.clock.getAsLong() - TimeUnit.SECONDS.toNanos(config.MAX_BACKLOG_AGE_SECONDS);
+    var lane = route.lanes[Priority.LOW.ordinal()];
+
+    var count = 0;
+    while (!lane.isEmpty() && lane.peek().enqueuedAt - deadline < 0) {
+      dropped.add(lane.poll());
+      count++;
+    }
+
+    if (count > 0) {
+      this.dropped.addAndGet(count);
+      this.logger.warn("Dropped {} chat messages older than {}s for route {}",
+        count,
+        config.MAX_BACKLOG_AGE_SECONDS,
+        route.id
+      );
+    }
+  }
+
+  // a leave cancels a join of the same player that hasn't been sent yet (and the other way around),
+  // but only once the backlog has grown old enough that shedding kicks in, returns the cancelled entry
+  // must hold the route lock
+  private Entry collapse(Route route, Entry entry) {
+    var config = this.config.get();
+    if (!config.sheddingEnabled() || !config.COLLAPSE_JOIN_LEAVE) return null;
+    if (entry.collapseKey == null || entry.category == null) return null;
+
+    var lane = route.lanes[entry.priority.ordinal()];
+    var oldest = lane.peek();
+    if (oldest == null) return null;
+
+    var maxAge = TimeUnit.SECONDS.toNanos(config.MAX_BACKLOG_AGE_SECONDS);
+    if (entry.enqueuedAt - oldest.enqueuedAt < maxAge) return null;
+
+    var iterator = lane.descendingIterator();
+    while (iterator.hasNext()) {
+      var pending = iterator.next();
+
+      if (entry.collapseKey.equals(pending.collapseKey) && opposite(pending.category, entry.category)) {
+        iterator.remove();
+        this.collapsed.addAndGet(2);
+        return pending;
+      }
+    }
+
+    return null;
+  }
+
+  private static boolean opposite(@Nullable MessageCategory a, MessageCategory b) {
+    if (a == MessageCategory.JOIN) return b == MessageCategory.LEAVE || b == MessageCategory.DISCONNECT;
+    if (b == MessageCategory.JOIN) return a == MessageCategory.LEAVE || a == MessageCategory.DISCONNECT;
+    return false;
+  }
+
+  private static Request request(RestAction<?> action) {
+    return (onSuccess, onError) -> action.queue(success -> onSuccess.run(), onError);
+  }
+
+  public enum Priority {
+    // declared in dispatch order
+    HIGH, NORMAL, LOW
+  }
+
+  /**
+   * A request once it's this entry's turn, a {@link RestAction} outside of tests
+   */
+  interface Request {
+    void queue(Runnable onSuccess, Consumer<Throwable> onError);
+  }
+
+  private record Entry(
+    Priority priority,
+    @Nullable MessageCategory category,
+    @Nullable String collapseKey,
+    Supplier<Request> action,
+    @Nullable Runnable done,
+    long enqueuedAt
+  ) {}
+
+  private static class Route {
+    private final long id;
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Entry>[] lanes = new ArrayDeque[Priority.values().length];
+    private boolean inFlight = false;
+
+    private Route(long id) {
+      this.id = id;
+
+      for (var i = 0; i < this.lanes.length; i++) {
+        this.lanes[i] = new ArrayDeque<>();
+      }
+    }
+  }
+}
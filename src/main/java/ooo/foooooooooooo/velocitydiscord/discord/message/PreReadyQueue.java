@@ -0,0 +1,129 @@
+package ooo.foooooooooooo.velocitydiscord.discord.message;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.config.OutboundConfig;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds messages until the bot is ready, bounded so a wrong token or a Discord outage at boot can't eat all memory
+ * <p>
+ * Once the queue is full, server and proxy messages push out the oldest chat or event message and are kept even when
+ * there is nothing left to push out, events and chat follow their configured {@link OutboundConfig.OverflowPolicy}. {@link #drain()} closes the queue in the same step, so a
+ * producer racing the ready event either gets its message into the drained batch or is told to send it directly.
+ */
+public class PreReadyQueue {
+  private final ArrayDeque<Entry>[] lanes;
+
+  private long sequence = 0;
+  private int size = 0;
+  private boolean open = true;
+
+  private final AtomicLong enqueued = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+
+  @SuppressWarnings("unchecked")
+  public PreReadyQueue() {
+    this.lanes = new ArrayDeque[OutboundScheduler.Priority.values().length];
+
+    for (var i = 0; i < this.lanes.length; i++) {
+      this.lanes[i] = new ArrayDeque<>();
+    }
+  }
+
+  /**
+   * @return false if the queue was already drained and the message has to be sent directly, true if it was queued or
+   * dropped because the queue is full
+   */
+  public synchronized boolean offer(IQueuedMessage message) {
+    if (!this.open) return false;
+
+    var config = VelocityDiscord.CONFIG.getDiscordConfig().OUTBOUND;
+    var priority = OutboundScheduler.priorityOf(message.category());
+
+    if (config.PRE_READY_CAPACITY > 0 && this.size >= config.PRE_READY_CAPACITY && !makeRoom(priority, config)) {
+      // server and proxy messages are always kept, there are few enough of them to go over the capacity
+      if (priority != OutboundScheduler.Priority.HIGH) {
+        drop(message);
+        return true;
+      }
+    }
+
+    this.lanes[priority.ordinal()].add(new Entry(this.sequence++, message));
+    this.size++;
+    this.enqueued.incrementAndGet();
+
+    return true;
+  }
+
+  /**
+   * Take everything in the order it was queued and close the queue, later {@link #offer} calls return false
+   */
+  public synchronized List<IQueuedMessage> drain() {
+    this.open = false;
+
+    var result = new ArrayList<IQueuedMessage>(this.size);
+
+    // merge the lanes back into queue order
+    while (true) {
+      ArrayDeque<Entry> next = null;
+
+      for (var lane : this.lanes) {
+        if (!lane.isEmpty() && (next == null || lane.peek().sequence < next.peek().sequence)) {
+          next = lane;
+        }
+      }
+
+      if (next == null) break;
+
+      result.add(next.poll().message);
+    }
+
+    this.size = 0;
+
+    return result;
+  }
+
+  public long enqueuedCount() {
+    return this.enqueued.get();
+  }
+
+  public long droppedCount() {
+    return this.dropped.get();
+  }
+
+  private boolean makeRoom(OutboundScheduler.Priority priority, OutboundConfig config) {
+    return switch (priority) {
+      case HIGH -> evictOldest(OutboundScheduler.Priority.LOW) || evictOldest(OutboundScheduler.Priority.NORMAL);
+      case NORMAL -> config.PRE_READY_EVENT_OVERFLOW == OutboundConfig.OverflowPolicy.DROP_OLDEST
+        && (evictOldest(OutboundScheduler.Priority.LOW) || evictOldest(OutboundScheduler.Priority.NORMAL));
+      case LOW -> config.PRE_READY_CHAT_OVERFLOW == OutboundConfig.OverflowPolicy.DROP_OLDEST
+        && evictOldest(OutboundScheduler.Priority.LOW);
+    };
+  }
+
+  private boolean evictOldest(OutboundScheduler.Priority priority) {
+    var entry = this.lanes[priority.ordinal()].poll();
+    if (entry == null) return false;
+
+    this.size--;
+    drop(entry.message);
+
+    return true;
+  }
+
+  private void drop(IQueuedMessage message) {
+    // one warning when it starts, the total is logged once the queue is drained
+    if (this.dropped.getAndIncrement() == 0) {
+      VelocityDiscord.LOGGER.warn(
+        "Queue for messages sent before the bot is ready is full, dropping messages (first was {})",
+        message.category()
+      );
+    }
+  }
+
+  private record Entry(long sequence, IQueuedMessage message) {}
+}
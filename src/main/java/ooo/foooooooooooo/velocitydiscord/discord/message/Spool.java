@@ -0,0 +1,332 @@
+package ooo.foooooooooooo.velocitydiscord.discord.message;
+
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of messages that couldn't be sent yet, kept on disk so they survive restarts
+ * <p>
+ * Records are appended to numbered segment files, a new segment is started once the current one reaches the segment
+ * size. Every record is framed as {@code [int length][int crc32][long id][long created at millis][payload]}, the
+ * payload is written by the {@link Codec}. Appends are buffered, {@link #sync()} flushes them and forces them to disk,
+ * so the caller decides how often to pay for an fsync.
+ * <p>
+ * {@link #drain} reads every segment in order and deletes them. The highest id handed out is remembered in a
+ * watermark file, so records that were already replayed are never replayed twice even if deleting the segments
+ * failed. Like {@link PreReadyQueue#drain()} it closes the spool in the same step, appends are turned away until
+ * {@link #reopen()}, so a producer racing the replay is told to send its message directly instead of leaving it on
+ * disk until the next replay.
+ */
+public class Spool<T> {
+  private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+  private static final String WATERMARK_FILE = "replayed";
+  // a single record can't be bigger than this, anything larger is garbage from a torn write
+  private static final int MAX_RECORD_SIZE = 1 << 20;
+
+  private final Path directory;
+  private final Codec<T> codec;
+  private final long segmentSize;
+  private final Logger logger;
+  private final LongSupplier clock;
+
+  private long nextId;
+  private long nextSegment;
+  private long watermark;
+
+  private FileOutputStream segmentFile;
+  private DataOutputStream segmentOut;
+  private long segmentBytes;
+  private boolean dirty = false;
+  private boolean open = true;
+
+  public Spool(Path directory, Codec<T> codec, long segmentSize, Logger logger) throws IOException {
+    this(directory, codec, segmentSize, logger, System::currentTimeMillis);
+  }
+
+  /**
+   * @param clock current time in millis, stamped on records and used to tell which ones expired
+   */
+  public Spool(Path directory, Codec<T> codec, long segmentSize, Logger logger, LongSupplier clock)
+    throws IOException {
+    this.directory = directory;
+    this.codec = codec;
+    this.segmentSize = segmentSize;
+    this.logger = logger;
+    this.clock = clock;
+
+    Files.createDirectories(directory);
+
+    this.watermark = readWatermark();
+    this.nextId = this.watermark + 1;
+    this.nextSegment = 0;
+
+    // continue numbering after whatever is left over from the last run
+    for (var segment : segments()) {
+      this.nextSegment = Math.max(this.nextSegment, segmentNumber(segment) + 1);
+
+      for (var record : read(segment)) {
+        this.nextId = Math.max(this.nextId, record.id + 1);
+      }
+    }
+  }
+
+  /**
+   * @return false if the record couldn't be written or the spool was drained, the caller has to keep or send it some
+   * other way
+   */
+  public synchronized boolean append(T value) {
+    if (!this.open) return false;
+
+    try {
+      var payload = new ByteArrayOutputStream(128);
+      var payloadOut = new DataOutputStream(payload);
+      payloadOut.writeLong(this.nextId);
+      payloadOut.writeLong(this.clock.getAsLong());
+      this.codec.write(value, payloadOut);
+      payloadOut.flush();
+
+      var bytes = payload.toByteArray();
+      var crc = new CRC32();
+      crc.update(bytes);
+
+      if (this.segmentOut == null || this.segmentBytes >= this.segmentSize) {
+        rotate();
+      }
+
+      this.segmentOut.writeInt(bytes.length);
+      this.segmentOut.writeInt((int) crc.getValue());
+      this.segmentOut.write(bytes);
+
+      this.segmentBytes += 8 + bytes.length;
+      this.nextId++;
+      this.dirty = true;
+
+      return true;
+    } catch (IOException e) {
+      this.logger.error("Failed to write message to spool", e);
+      return false;
+    }
+  }
+
+  /**
+   * Flush buffered records and force them to disk
+   */
+  public synchronized void sync() {
+    if (!this.dirty || this.segmentOut == null) return;
+
+    try {
+      this.segmentOut.flush();
+      this.segmentFile.getChannel().force(false);
+      this.dirty = false;
+    } catch (IOException e) {
+      this.logger.error("Failed to sync spool", e);
+    }
+  }
+
+  /**
+   * Read everything in the spool in the order it was appended, remove it from disk and close the spool, later
+   * {@link #append} calls return false until it's reopened
+   *
+   * @param maxAgeMillis records older than this are skipped, 0 keeps everything
+   */
+  public synchronized List<T> drain(long maxAgeMillis) {
+    this.open = false;
+    closeSegment();
+
+    var result = new ArrayList<T>();
+    var seen = new HashSet<Long>();
+    var highest = this.watermark;
+    var expired = 0;
+    var duplicates = 0;
+    var deadline = this.clock.getAsLong() - maxAgeMillis;
+
+    var segments = segments();
+
+    for (var segment : segments) {
+      for (var record : read(segment)) {
+        highest = Math.max(highest, record.id);
+
+        if (record.id <= this.watermark || !seen.add(record.id)) {
+          duplicates++;
+          continue;
+        }
+
+        if (maxAgeMillis > 0 && record.createdAt < deadline) {
+          expired++;
+          continue;
+        }
+
+        result.add(record.value);
+      }
+    }
+
+    if (expired > 0 || duplicates > 0) {
+      this.logger.info("Skipped {} expired and {} already sent spooled messages", expired, duplicates);
+    }
+
+    // remember what was replayed before deleting anything, so a failed delete can't cause a second replay
+    try {
+      writeWatermark(highest);
+      this.watermark = highest;
+    } catch (IOException e) {
+      this.logger.error("Failed to write spool watermark", e);
+    }
+
+    for (var segment : segments) {
+      try {
+        Files.deleteIfExists(segment);
+      } catch (IOException e) {
+        this.logger.error("Failed to delete spool segment {}", segment, e);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Accept appends again, used once messages have to wait for the gateway again
+   */
+  public synchronized void reopen() {
+    this.open = true;
+  }
+
+  public synchronized void close() {
+    closeSegment();
+  }
+
+  private void rotate() throws IOException {
+    closeSegment();
+
+    var path = this.directory.resolve(String.format("segment-%010d.log", this.nextSegment++));
+    this.segmentFile = new FileOutputStream(path.toFile(), true);
+    this.segmentOut = new DataOutputStream(new BufferedOutputStream(this.segmentFile));
+    this.segmentBytes = Files.size(path);
+  }
+
+  private void closeSegment() {
+    if (this.segmentOut == null) return;
+
+    sync();
+
+    try {
+      this.segmentOut.close();
+    } catch (IOException e) {
+      this.logger.error("Failed to close spool segment", e);
+    }
+
+    this.segmentOut = null;
+    this.segmentFile = null;
+    this.segmentBytes = 0;
+  }
+
+  private List<Path> segments() {
+    try (Stream<Path> files = Files.list(this.directory)) {
+      return files
+        .filter(p -> SEGMENT_NAME.matcher(p.getFileName().toString()).matches())
+        .sorted((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+        .toList();
+    } catch (IOException e) {
+      this.logger.error("Failed to list spool segments", e);
+      return List.of();
+    }
+  }
+
+  private static long segmentNumber(Path segment) {
+    var matcher = SEGMENT_NAME.matcher(segment.getFileName().toString());
+    return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+  }
+
+  // stops at the first broken record, everything after a torn write is unreadable anyway
+  private List<Record<T>> read(Path segment) {
+    var records = new ArrayList<Record<T>>();
+
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+      while (true) {
+        int length;
+
+        try {
+          length = in.readInt();
+        } catch (EOFException e) {
+          break;
+        }
+
+        var expectedCrc = in.readInt();
+
+        if (length < 16 || length > MAX_RECORD_SIZE) {
+          this.logger.warn("Spool segment {} is corrupted, ignoring the rest of it", segment.getFileName());
+          break;
+        }
+
+        var bytes = new byte[length];
+        in.readFully(bytes);
+
+        var crc = new CRC32();
+        crc.update(bytes);
+
+        if ((int) crc.getValue() != expectedCrc) {
+          this.logger.warn("Spool segment {} is corrupted, ignoring the rest of it", segment.getFileName());
+          break;
+        }
+
+        var payload = new DataInputStream(new ByteArrayInputStream(bytes));
+        var id = payload.readLong();
+        var createdAt = payload.readLong();
+
+        try {
+          records.add(new Record<>(id, createdAt, this.codec.read(payload)));
+        } catch (IOException | RuntimeException e) {
+          this.logger.warn("Skipping unreadable spooled message {} in {}", id, segment.getFileName(), e);
+        }
+      }
+    } catch (EOFException e) {
+      this.logger.warn("Spool segment {} ends in a partial record, ignoring it", segment.getFileName());
+    } catch (IOException e) {
+      this.logger.error("Failed to read spool segment {}", segment.getFileName(), e);
+    }
+
+    return records;
+  }
+
+  private long readWatermark() {
+    var path = this.directory.resolve(WATERMARK_FILE);
+    if (!Files.exists(path)) return 0;
+
+    try {
+      return Long.parseLong(Files.readString(path, StandardCharsets.UTF_8).trim());
+    } catch (IOException | NumberFormatException e) {
+      this.logger.warn("Failed to read spool watermark, replaying everything", e);
+      return 0;
+    }
+  }
+
+  private void writeWatermark(long id) throws IOException {
+    var temp = this.directory.resolve(WATERMARK_FILE + ".tmp");
+
+    try (var out = new FileOutputStream(temp.toFile())) {
+      out.write(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+      out.getChannel().force(false);
+    }
+
+    Files.move(temp, this.directory.resolve(WATERMARK_FILE), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  public interface Codec<T> {
+    void write(T value, DataOutput out) throws IOException;
+
+    T read(DataInput in) throws IOException;
+  }
+
+  private record Record<T>(long id, long createdAt, T value) {}
+}
@@ -0,0 +1,185 @@
+package ooo.foooooooooooo.velocitydiscord.discord.message;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.config.DiscordChatConfig;
+import ooo.foooooooooooo.velocitydiscord.config.DiscordChatConfig.MessageCategory;
+import ooo.foooooooooooo.velocitydiscord.util.TaskScheduler;
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Watches the rate of join, leave and server switch messages per server
+ * <p>
+ * Once a server sees more than the configured amount of events within the window (a backend restarting or the proxy
+ * coming back up), individual messages are swallowed and counted instead. After the server has been quiet for the
+ * settle time, one summary per kind of event is handed to the {@link Sink}.
+ */
+public class StormDetector {
+  private final Map<String, Storm> storms = new HashMap<>();
+  private final Sink sink;
+  private final Function<String, DiscordChatConfig> configs;
+  private final TaskScheduler scheduler;
+  private final LongSupplier clock;
+  private final Logger logger;
+
+  public StormDetector(Sink sink) {
+    this(
+      sink,
+      server -> VelocityDiscord.CONFIG.getServerConfig(server).getDiscordChatConfig(),
+      TaskScheduler.velocity(),
+      System::nanoTime,
+      VelocityDiscord.LOGGER
+    );
+  }
+
+  /**
+   * @param configs chat config of a server, read on every event so it can follow config reloads
+   * @param clock   current time in nanoseconds
+   */
+  public StormDetector(
+    Sink sink,
+    Function<String, DiscordChatConfig> configs,
+    TaskScheduler scheduler,
+    LongSupplier clock,
+    Logger logger
+  ) {
+    this.sink = sink;
+    this.configs = configs;
+    this.scheduler = scheduler;
+    this.clock = clock;
+    this.logger = logger;
+  }
+
+  /**
+   * @param server   server whose config and channel the message belongs to
+   * @param category {@link MessageCategory#JOIN}, {@link MessageCategory#LEAVE}, {@link MessageCategory#DISCONNECT}
+   *                 or {@link MessageCategory#SERVER_SWITCH}
+   * @param previous server the player came from, only used for server switches
+   * @return true if the message should be sent, false if it was folded into a summary
+   */
+  public synchronized boolean offer(String server, MessageCategory category, @Nullable String previous) {
+    var config = this.configs.apply(server);
+    if (!config.stormDetectionEnabled()) return true;
+
+    var now = this.clock.getAsLong();
+    var storm = this.storms.computeIfAbsent(server, Storm::new);
+
+    var windowStart = now - TimeUnit.SECONDS.toNanos(config.STORM_WINDOW_SECONDS);
+    while (!storm.events.isEmpty() && storm.events.peekFirst() - windowStart < 0) {
+      storm.events.pollFirst();
+    }
+
+    storm.events.addLast(now);
+    storm.lastEvent = now;
+
+    if (!storm.active) {
+      if (storm.events.size() <= config.STORM_THRESHOLD) return true;
+
+      storm.active = true;
+      this.logger.info("Join/leave storm on `{}`, summarizing messages until it settles", server);
+    }
+
+    // nothing else needs the timestamps while summarizing
+    storm.events.clear();
+    storm.counts.merge(new Summary(summaryCategory(category), previous), 1, Integer::sum);
+
+    schedule(storm, config.STORM_SETTLE_SECONDS);
+
+    return false;
+  }
+
+  /**
+   * Emit all pending summaries right away, used before shutting down
+   */
+  public synchronized void flushAll() {
+    for (var storm : this.storms.values()) {
+      emit(storm);
+    }
+
+    this.storms.clear();
+  }
+
+  private void schedule(Storm storm, long delaySeconds) {
+    if (storm.task != null) return;
+
+    storm.task = this.scheduler.schedule(() -> onSettleElapsed(storm), delaySeconds, TimeUnit.SECONDS);
+  }
+
+  private synchronized void onSettleElapsed(Storm storm) {
+    // already flushed
+    if (storm.task == null) return;
+
+    storm.task = null;
+
+    var settle = this.configs.apply(storm.server).STORM_SETTLE_SECONDS;
+    var quiet = this.clock.getAsLong() - storm.lastEvent;
+    var remaining = TimeUnit.SECONDS.toNanos(settle) - quiet;
+
+    // still going, check again once it could have settled
+    if (remaining > 0) {
+      schedule(storm, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining)));
+      return;
+    }
+
+    emit(storm);
+    this.storms.remove(storm.server);
+  }
+
+  private void emit(Storm storm) {
+    if (storm.task != null) {
+      storm.task.cancel();
+      storm.task = null;
+    }
+
+    for (var entry : storm.counts.entrySet()) {
+      var summary = entry.getKey();
+
+      try {
+        this.sink.send(storm.server, summary.category, summary.previous, entry.getValue());
+      } catch (Exception e) {
+        this.logger.error("Failed to send join/leave summary for `{}`", storm.server, e);
+      }
+    }
+
+    storm.counts.clear();
+    storm.active = false;
+  }
+
+  // disconnects and leaves end up in the same summary
+  private static MessageCategory summaryCategory(MessageCategory category) {
+    return category == MessageCategory.DISCONNECT ? MessageCategory.LEAVE : category;
+  }
+
+  @FunctionalInterface
+  public interface Sink {
+    /**
+     * @param category one of {@link MessageCategory#JOIN}, {@link MessageCategory#LEAVE} or
+     *                 {@link MessageCategory#SERVER_SWITCH}, see {@link DiscordChatConfig#getStormFormat}
+     */
+    void send(String server, MessageCategory category, @Nullable String previous, int count);
+  }
+
+  private record Summary(MessageCategory category, @Nullable String previous) {}
+
+  private static class Storm {
+    private final String server;
+    private final ArrayDeque<Long> events = new ArrayDeque<>();
+    // insertion order, so summaries come out in the order their first event happened
+    private final Map<Summary, Integer> counts = new LinkedHashMap<>();
+    private boolean active = false;
+    private long lastEvent;
+    private TaskScheduler.Task task;
+
+    private Storm(String server) {
+      this.server = server;
+    }
+  }
+}
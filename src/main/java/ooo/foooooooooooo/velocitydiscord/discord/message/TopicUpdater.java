@@ -0,0 +1,205 @@
+package ooo.foooooooooooo.velocitydiscord.discord.message;
+
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+import ooo.foooooooooooo.velocitydiscord.util.TaskScheduler;
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Sets channel topics, but only when the text actually changed and no faster than Discord allows
+ * <p>
+ * Discord only takes two topic edits per channel every 10 minutes, anything more is held back by JDA's rate limiter
+ * for minutes. Here updates wait until no new text came in for a short quiet period, and for a free edit. While they
+ * wait newer text replaces older text, so only the latest topic is ever sent.
+ */
+public class TopicUpdater {
+  private static final int EDITS_PER_WINDOW = 2;
+  private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(10);
+  // every update starts the quiet period over, updates close together only send the last one
+  private static final long DEBOUNCE_NANOS = TimeUnit.SECONDS.toNanos(5);
+  // text that keeps changing is still sent this long after it first changed
+  private static final long MAX_DEBOUNCE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+  private final Map<Long, Topic> topics = new HashMap<>();
+  private final TaskScheduler scheduler;
+  private final LongSupplier clock;
+  private final Logger logger;
+
+  public TopicUpdater() {
+    this(TaskScheduler.velocity(), System::nanoTime, VelocityDiscord.LOGGER);
+  }
+
+  /**
+   * @param clock current time in nanoseconds
+   */
+  public TopicUpdater(TaskScheduler scheduler, LongSupplier clock, Logger logger) {
+    this.scheduler = scheduler;
+    this.clock = clock;
+    this.logger = logger;
+  }
+
+  public void update(TextChannel channel, String text) {
+    if (channel == null) {
+      this.logger.error("Failed to update topic: channel is null");
+      return;
+    }
+
+    update(new DiscordChannel(channel), text);
+  }
+
+  synchronized void update(Channel channel, String text) {
+    var topic = getTopic(channel);
+
+    if (text.equals(topic.sent)) {
+      // went back to what the channel already shows, nothing to send
+      cancel(topic);
+      return;
+    }
+
+    if (topic.pending == null) topic.pendingSince = this.clock.getAsLong();
+
+    topic.pending = text;
+    schedule(topic);
+  }
+
+  /**
+   * Drop updates that weren't sent yet, used before shutting down
+   */
+  public synchronized void cancelAll() {
+    for (var topic : this.topics.values()) {
+      cancel(topic);
+    }
+  }
+
+  private static void cancel(Topic topic) {
+    if (topic.task != null) {
+      topic.task.cancel();
+      topic.task = null;
+    }
+
+    topic.pending = null;
+  }
+
+  private Topic getTopic(Channel channel) {
+    var topic = this.topics.computeIfAbsent(channel.id(), id -> new Topic(channel));
+
+    // channel objects are replaced when channels are reloaded, the rate limit stays with the id
+    topic.channel = channel;
+
+    return topic;
+  }
+
+  // replaces the task that is already waiting, so the quiet period starts over
+  private void schedule(Topic topic) {
+    if (topic.task != null) topic.task.cancel();
+
+    var now = this.clock.getAsLong();
+    prune(topic, now);
+
+    var at = Math.min(now + DEBOUNCE_NANOS, topic.pendingSince + MAX_DEBOUNCE_NANOS);
+    if (topic.edits.size() >= EDITS_PER_WINDOW) {
+      at = Math.max(at, topic.edits.peekFirst() + WINDOW_NANOS);
+    }
+
+    var generation = ++topic.generation;
+
+    topic.task = this.scheduler.schedule(
+      () -> flush(topic, generation),
+      Math.max(0, TimeUnit.NANOSECONDS.toMillis(at - now)),
+      TimeUnit.MILLISECONDS
+    );
+  }
+
+  private synchronized void flush(Topic topic, long generation) {
+    // cancelled or replaced by a later update, possibly while this one was waiting for the lock
+    if (topic.task == null || topic.generation != generation) return;
+
+    topic.task = null;
+
+    var text = topic.pending;
+    topic.pending = null;
+
+    if (text == null || text.equals(topic.sent)) return;
+
+    topic.sent = text;
+    topic.edits.addLast(this.clock.getAsLong());
+
+    topic.channel.setTopic(text, error -> {
+      this.logger.error("Failed to update topic of channel {}", topic.channel.id(), error);
+      onFailed(topic, text);
+    });
+  }
+
+  private synchronized void onFailed(Topic topic, String text) {
+    // forget it was sent so the next update with the same text tries again
+    if (Objects.equals(topic.sent, text)) topic.sent = null;
+  }
+
+  private static void prune(Topic topic, long now) {
+    while (!topic.edits.isEmpty() && now - topic.edits.peekFirst() >= WINDOW_NANOS) {
+      topic.edits.pollFirst();
+    }
+  }
+
+  /**
+   * The part of a text channel that has a topic
+   */
+  interface Channel {
+    long id();
+
+    @Nullable String topic();
+
+    /**
+     * @param onError called if Discord didn't take the edit
+     */
+    void setTopic(String text, Consumer<Throwable> onError);
+  }
+
+  private record DiscordChannel(TextChannel channel) implements Channel {
+    @Override
+    public long id() {
+      return this.channel.getIdLong();
+    }
+
+    @Override
+    public @Nullable String topic() {
+      return this.channel.getTopic();
+    }
+
+    @Override
+    public void setTopic(String text, Consumer<Throwable> onError) {
+      this.channel.getManager().setTopic(text).queue(null, onError);
+    }
+  }
+
+  private static class Topic {
+    private Channel channel;
+    // when the last edits were sent, oldest first
+    private final ArrayDeque<Long> edits = new ArrayDeque<>(EDITS_PER_WINDOW + 1);
+    @Nullable
+    private String sent;
+    @Nullable
+    private String pending;
+    // when the text that is waiting first changed
+    private long pendingSince;
+    @Nullable
+    private TaskScheduler.Task task;
+    // bumped with every new task, a task that fires after it was replaced does nothing
+    private long generation;
+
+    private Topic(Channel channel) {
+      this.channel = channel;
+      // what the channel shows right now, so a restart doesn't set the same topic again
+      this.sent = channel.topic();
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package ooo.foooooooooooo.velocitydiscord.discord.message;
+
+import net.dv8tion.jda.api.entities.IncomingWebhookClient;
+import net.dv8tion.jda.api.requests.RestAction;
+import ooo.foooooooooooo.velocitydiscord.config.DiscordChatConfig.MessageCategory;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * One or more webhooks posting into the same channel
+ * <p>
+ * Every webhook has its own rate limit bucket, so messages are spread over the webhook with the fewest messages still
+ * waiting in the {@link OutboundScheduler}. A player sticks to the same webhook for as long as they have messages
+ * waiting, so their messages can't overtake each other.
+ */
+public class WebhookPool {
+  private final List<IncomingWebhookClient> clients;
+  private final int[] pending;
+  private final Map<String, Affinity> players = new HashMap<>();
+  private int next = 0;
+
+  public WebhookPool(List<IncomingWebhookClient> clients) {
+    if (clients.isEmpty()) {
+      throw new IllegalArgumentException("Webhook pool needs at least one client");
+    }
+
+    this.clients = List.copyOf(clients);
+    this.pending = new int[this.clients.size()];
+  }
+
+  public int size() {
+    return this.clients.size();
+  }
+
+  /**
+   * @param player identifies whose messages have to stay in order, usually the player's uuid
+   * @param action creates the request for the webhook this message ended up on
+   */
+  public void submit(
+    OutboundScheduler scheduler,
+    String player,
+    MessageCategory category,
+    @Nullable String collapseKey,
+    Function<IncomingWebhookClient, ? extends RestAction<?>> action
+  ) {
+    var index = acquire(player);
+    var client = this.clients.get(index);
+
+    scheduler.submit(
+      client.getIdLong(),
+      OutboundScheduler.priorityOf(category),
+      category,
+      collapseKey,
+      () -> action.apply(client),
+      () -> release(player, index)
+    );
+  }
+
+  private synchronized int acquire(String player) {
+    var affinity = this.players.get(player);
+
+    if (affinity == null) {
+      affinity = new Affinity(pick());
+      this.players.put(player, affinity);
+    }
+
+    affinity.count++;
+    this.pending[affinity.index]++;
+
+    return affinity.index;
+  }
+
+  private synchronized void release(String player, int index) {
+    this.pending[index]--;
+
+    var affinity = this.players.get(player);
+    if (affinity != null && --affinity.count <= 0) {
+      this.players.remove(player);
+    }
+  }
+
+  // least pending messages, ties go round-robin so an idle pool still uses every webhook
+  private int pick() {
+    var best = this.next;
+
+    for (var i = 1; i < this.pending.length; i++) {
+      var candidate = (this.next + i) % this.pending.length;
+      if (this.pending[candidate] < this.pending[best]) {
+        best = candidate;
+      }
+    }
+
+    this.next = (best + 1) % this.pending.length;
+
+    return best;
+  }
+
+  private static class Affinity {
+    private final int index;
+    private int count = 0;
+
+    private Affinity(int index) {
+      this.index = index;
+    }
+  }
+}
@@ -0,0 +1,383 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.Tag;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A MiniMessage format parsed once into a component tree, with {@code {name}} placeholders filled in per use
+ * <p>
+ * Placeholders are swapped for private use markers before parsing, so they survive MiniMessage as plain text, in
+ * hover text, click values and insertions. A placeholder that is a whole tag, like {@code <{role_color}>}, becomes a
+ * styling tag that is later replaced by the color the value names. Values are inserted as components and never
+ * parsed, so they don't need escaping.
+ * <p>
+ * A placeholder inside any other tag's arguments, like {@code <color:{x}>} or {@code <gradient:{a}:{b}>}, would be
+ * read by MiniMessage as a marker instead of its value. Formats with one of those are filled in as text and parsed for
+ * every use instead, with the values' tags escaped, which is slower but still correct.
+ */
+public final class ComponentTemplate {
+  private static final Map<String, ComponentTemplate> CACHE = new ConcurrentHashMap<>();
+
+  private static final char MARK = '\uE000';
+  private static final char FIRST_SLOT = '\uE001';
+  private static final String COLOR_TAG = "velocitydiscord_color_";
+  private static final String COLOR_FONT_NAMESPACE = "velocitydiscord";
+  // tags whose arguments keep markers as they are, the values are filled in after parsing
+  private static final Set<String> MARKER_SAFE_TAGS = Set.of("click", "insert", "hover");
+
+
+  @Nonnull
+  private final Template template;
+  @Nullable
+  private final Component component;
+
+  // null unless a placeholder is inside a tag argument, then this is what gets filled in and parsed on every use
+  @Nullable
+  private final Template reparsed;
+
+  private ComponentTemplate(@Nonnull Template template, @Nullable Component component, @Nullable Template reparsed) {
+    this.template = template;
+    this.component = component;
+    this.reparsed = reparsed;
+  }
+
+  /**
+   * Get the parsed template for a format, formats are only parsed the first time they are seen
+   */
+  public static ComponentTemplate of(@Nonnull String source) {
+    return CACHE.computeIfAbsent(source, ComponentTemplate::compile);
+  }
+
+  /**
+   * Drop all cached templates, called when the config is reloaded
+   */
+  public static void clearCache() {
+    CACHE.clear();
+  }
+
+  public static ComponentTemplate compile(@Nonnull String source) {
+    var template = Template.compile(source);
+    var resolvers = new ArrayList<TagResolver>();
+
+    // whole tag placeholders are colors, they can't be markers since MiniMessage only knows real tag names
+    var tagged = source;
+    for (var slot = 0; slot < template.slotCount(); slot++) {
+      var key = template.key(slot);
+      if (!tagged.contains("<{" + key + "}>")) continue;
+
+      var name = COLOR_TAG + slot;
+      var font = Key.key(COLOR_FONT_NAMESPACE, "slot_" + slot);
+
+      tagged = tagged.replace("<{" + key + "}>", "<" + name + ">").replace("</{" + key + "}>", "</" + name + ">");
+      resolvers.add(TagResolver.resolver(name, Tag.styling((Consumer<Style.Builder>) style -> style.font(font))));
+    }
+
+    if (hasArgumentPlaceholder(tagged, template)) {
+      VelocityDiscord.LOGGER.warn(
+        "Format `{}` has a placeholder inside a tag argument, it will be parsed again for every message",
+        source
+      );
+
+      return new ComponentTemplate(template, null, template);
+    }
+
+    var marked = tagged;
+    for (var slot = 0; slot < template.slotCount(); slot++) {
+      marked = marked.replace("{" + template.key(slot) + "}", marker(slot));
+    }
+
+    var component = MiniMessage.miniMessage().deserialize(marked, TagResolver.resolver(resolvers));
+
+    return new ComponentTemplate(template, component, null);
+  }
+
+  // whether a placeholder is inside the arguments of a tag that would not keep its marker intact
+  private static boolean hasArgumentPlaceholder(String source, Template template) {
+    var i = 0;
+
+    while (i < source.length()) {
+      var c = source.charAt(i);
+
+      if (c == '\\') {
+        i += 2;
+        continue;
+      }
+
+      var end = c == '<' ? tagEnd(source, i) : -1;
+      if (end < 0) {
+        i++;
+        continue;
+      }
+
+      var tag = source.substring(i + 1, end);
+      if (!markerSafe(tag, template)) {
+        for (var slot = 0; slot < template.slotCount(); slot++) {
+          if (tag.contains("{" + template.key(slot) + "}")) return true;
+        }
+      }
+
+      i = end + 1;
+    }
+
+    return false;
+  }
+
+  // index of the > closing the tag that starts at start, -1 if it's not a tag
+  private static int tagEnd(String source, int start) {
+    var i = start + 1;
+    if (i < source.length() && source.charAt(i) == '/') i++;
+
+    if (i >= source.length() || !isTagNameStart(source.charAt(i))) return -1;
+
+    var quote = (char) 0;
+
+    for (; i < source.length(); i++) {
+      var c = source.charAt(i);
+
+      if (quote != 0) {
+        if (c == '\\') {
+          i++;
+        } else if (c == quote) {
+          quote = 0;
+        }
+      } else if ((c == '\'' || c == '"') && source.charAt(i - 1) == ':') {
+        quote = c;
+      } else if (c == '>') {
+        return i;
+      } else if (c == '<' || c == '\n') {
+        return -1;
+      }
+    }
+
+    return -1;
+  }
+
+  private static boolean isTagNameStart(char c) {
+    return Character.isLetterOrDigit(c) || c == '#' || c == '_' || c == '!' || c == '?' || c == '-' || c == '{';
+  }
+
+  private static boolean markerSafe(String tag, Template template) {
+    if (tag.startsWith("/")) return true;
+
+    var colon = tag.indexOf(':');
+    var name = (colon < 0 ? tag : tag.substring(0, colon)).toLowerCase();
+
+    if (name.equals("hover")) {
+      var prefix = "hover:show_text:";
+      if (!tag.toLowerCase().startsWith(prefix)) return false;
+
+      // the hover text is parsed as MiniMessage too, its own tags have the same problem
+      return !hasArgumentPlaceholder(tag.substring(prefix.length()), template);
+    }
+
+    return MARKER_SAFE_TAGS.contains(name);
+  }
+
+  private static String marker(int slot) {
+    return String.valueOf(new char[]{MARK, (char) (FIRST_SLOT + slot)});
+  }
+
+  @Nonnull
+  public String source() {
+    return this.template.source();
+  }
+
+  public boolean uses(@Nonnull String key) {
+    return this.template.uses(key);
+  }
+
+  public Builder builder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public String toString() {
+    return this.template.source();
+  }
+
+  public static final class Builder {
+    private final ComponentTemplate template;
+    // String or Component, by slot
+    private final Object[] values;
+
+    private Builder(ComponentTemplate template) {
+      this.template = template;
+      this.values = new Object[template.template.slotCount()];
+    }
+
+    public Builder add(@Nonnull String key, @Nonnull String value) {
+      var slot = this.template.template.slot(key);
+      if (slot >= 0) this.values[slot] = value;
+
+      return this;
+    }
+
+    public Builder add(@Nonnull String key, @Nonnull Component value) {
+      var slot = this.template.template.slot(key);
+      if (slot >= 0) this.values[slot] = value;
+
+      return this;
+    }
+
+    @Nonnull
+    public Component build() {
+      if (this.template.reparsed != null) return reparse(this.template.reparsed);
+
+      if (this.values.length == 0) return this.template.component;
+
+      return fill(this.template.component);
+    }
+
+    private Component reparse(Template reparsed) {
+      var mini = MiniMessage.miniMessage();
+      var strings = new String[this.values.length];
+
+      for (var slot = 0; slot < strings.length; slot++) {
+        var value = this.values[slot];
+
+        if (value instanceof Component component) {
+          strings[slot] = mini.serialize(component);
+        } else if (value instanceof String string) {
+          strings[slot] = mini.escapeTags(string);
+        }
+      }
+
+      return mini.deserialize(reparsed.render(strings));
+    }
+
+    private Component fill(Component component) {
+      var style = fillStyle(component.style());
+
+      var children = component.children();
+      List<Component> filledChildren = null;
+      for (var i = 0; i < children.size(); i++) {
+        var child = children.get(i);
+        var filled = fill(child);
+
+        if (filled != child && filledChildren == null) {
+          filledChildren = new ArrayList<>(children.subList(0, i));
+        }
+        if (filledChildren != null) filledChildren.add(filled);
+      }
+
+      if (component instanceof TextComponent text && text.content().indexOf(MARK) >= 0) {
+        var content = text.content();
+        var mark = content.indexOf(MARK);
+
+        // the text before the first marker stays the content, the values and the text after them become children
+        var builder = Component.text().style(style).content(content.substring(0, mark));
+
+        var start = mark;
+        while (mark >= 0 && mark + 1 < content.length()) {
+          if (mark > start) builder.append(Component.text(content.substring(start, mark)));
+          builder.append(component(content.charAt(mark + 1) - FIRST_SLOT));
+
+          start = mark + 2;
+          mark = content.indexOf(MARK, start);
+        }
+
+        if (start < content.length()) builder.append(Component.text(content.substring(start)));
+
+        return builder.append(filledChildren != null ? filledChildren : children).build();
+      }
+
+      if (style == component.style() && filledChildren == null) return component;
+
+      return component.style(style).children(filledChildren != null ? filledChildren : children);
+    }
+
+    private Style fillStyle(Style style) {
+      var font = style.font();
+      if (font != null && font.namespace().equals(COLOR_FONT_NAMESPACE)) {
+        var slot = Integer.parseInt(font.value().substring("slot_".length()));
+        style = style.font(null).color(color(slot));
+      }
+
+      var hover = style.hoverEvent();
+      if (hover != null && hover.action() == HoverEvent.Action.SHOW_TEXT) {
+        var text = (Component) hover.value();
+        var filled = fill(text);
+        if (filled != text) style = style.hoverEvent(HoverEvent.showText(filled));
+      }
+
+      var click = style.clickEvent();
+      if (click != null && click.value().indexOf(MARK) >= 0) {
+        style = style.clickEvent(ClickEvent.clickEvent(click.action(), fillString(click.value())));
+      }
+
+      var insertion = style.insertion();
+      if (insertion != null && insertion.indexOf(MARK) >= 0) {
+        style = style.insertion(fillString(insertion));
+      }
+
+      return style;
+    }
+
+    private String fillString(String text) {
+      var builder = new StringBuilder(text.length() + 16);
+
+      var start = 0;
+      var mark = text.indexOf(MARK);
+      while (mark >= 0 && mark + 1 < text.length()) {
+        builder.append(text, start, mark).append(string(text.charAt(mark + 1) - FIRST_SLOT));
+
+        start = mark + 2;
+        mark = text.indexOf(MARK, start);
+      }
+
+      return builder.append(text, start, text.length()).toString();
+    }
+
+    private Component component(int slot) {
+      var value = this.values[slot];
+
+      if (value instanceof Component component) return component;
+      if (value instanceof String string) return Component.text(string);
+
+      // same as StringTemplate, placeholders without a value are left as they are
+      return Component.text(placeholder(slot));
+    }
+
+    private String string(int slot) {
+      var value = this.values[slot];
+
+      if (value instanceof String string) return string;
+      if (value == null) return placeholder(slot);
+
+      // components have no sensible string form in a click value or insertion
+      return "";
+    }
+
+    @Nullable
+    private TextColor color(int slot) {
+      if (!(this.values[slot] instanceof String value)) return null;
+
+      if (value.startsWith("#")) return TextColor.fromHexString(value);
+
+      return NamedTextColor.NAMES.value(value);
+    }
+
+    private String placeholder(int slot) {
+      return '{' + this.template.template.key(slot) + '}';
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Finds links in a message in a single pass, used like a {@link java.util.regex.Matcher}
+ * <p>
+ * Matches the same spans as {@code [^:/?#\s]+:(?://)?(?:[^?#\s]+)?(?:\?[^#\s]+)?(?:#\S+)?}:
+ * <ul>
+ *   <li>a scheme that runs up to a {@code :}, it can't contain {@code / ? #} or whitespace</li>
+ *   <li>everything up to the next {@code ?}, {@code #} or whitespace</li>
+ *   <li>a query starting at {@code ?}, if it's not empty, up to the next {@code #} or whitespace</li>
+ *   <li>a fragment starting at {@code #}, if it's not empty, up to the next whitespace</li>
+ * </ul>
+ * Unlike the regex, a long run of characters without a {@code :} is only looked at once.
+ */
+public final class LinkScanner {
+  @Nonnull
+  private final CharSequence text;
+  private int position = 0;
+  private int start = -1;
+  private int end = -1;
+
+  public LinkScanner(@Nonnull CharSequence text) {
+    this.text = text;
+  }
+
+  /**
+   * Find the next link after the previous one
+   *
+   * @return whether there was one, its bounds are in {@link #start()} and {@link #end()}
+   */
+  public boolean find() {
+    var length = this.text.length();
+    var i = this.position;
+
+    while (i < length) {
+      if (!isSchemeChar(this.text.charAt(i))) {
+        i++;
+        continue;
+      }
+
+      // the whole run is the scheme, a shorter one would be followed by another scheme character instead of a colon
+      var schemeStart = i;
+      while (i < length && isSchemeChar(this.text.charAt(i))) i++;
+
+      if (i < length && this.text.charAt(i) == ':') {
+        this.start = schemeStart;
+        this.end = this.position = linkEnd(i + 1);
+        return true;
+      }
+    }
+
+    this.position = length;
+    this.start = this.end = -1;
+    return false;
+  }
+
+  public int start() {
+    return this.start;
+  }
+
+  public int end() {
+    return this.end;
+  }
+
+  private int linkEnd(int i) {
+    var length = this.text.length();
+
+    // the optional // is covered by the path, slashes are path characters too
+    while (i < length && isPathChar(this.text.charAt(i))) i++;
+
+    if (i + 1 < length && this.text.charAt(i) == '?' && isQueryChar(this.text.charAt(i + 1))) {
+      i++;
+      while (i < length && isQueryChar(this.text.charAt(i))) i++;
+    }
+
+    if (i + 1 < length && this.text.charAt(i) == '#' && !isWhitespace(this.text.charAt(i + 1))) {
+      i++;
+      while (i < length && !isWhitespace(this.text.charAt(i))) i++;
+    }
+
+    return i;
+  }
+
+  // [^:/?#\s]
+  private static boolean isSchemeChar(char c) {
+    return c != ':' && c != '/' && c != '?' && c != '#' && !isWhitespace(c);
+  }
+
+  // [^?#\s]
+  private static boolean isPathChar(char c) {
+    return c != '?' && c != '#' && !isWhitespace(c);
+  }
+
+  // [^#\s]
+  private static boolean isQueryChar(char c) {
+    return c != '#' && !isWhitespace(c);
+  }
+
+  // same as \s without UNICODE_CHARACTER_CLASS
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+}
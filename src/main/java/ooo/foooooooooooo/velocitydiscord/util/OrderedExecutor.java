@@ -0,0 +1,193 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Runs tasks on a small pool of worker threads, tasks with the same key run one after another in submission order
+ * <p>
+ * Tasks with different keys run in parallel. The amount of tasks waiting across all keys is bounded, tasks over the
+ * limit are rejected instead of piling up. After a shutdown the next task starts a new set of workers, so the executor
+ * can be shut down with each Discord session.
+ */
+public class OrderedExecutor {
+  // tasks a worker runs for one key before giving other keys a turn
+  private static final int BATCH_SIZE = 32;
+
+  private final String name;
+  private final int threads;
+  private final IntSupplier capacity;
+  private final Map<Object, KeyQueue> queues = new HashMap<>();
+
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicLong rejected = new AtomicLong();
+
+  // null until the first task and after a shutdown
+  private ExecutorService workers;
+
+  /**
+   * @param capacity read on every submission so it can follow config reloads, a value below 1 means unbounded
+   */
+  public OrderedExecutor(String name, int threads, IntSupplier capacity) {
+    this.name = name;
+    this.threads = threads;
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return false if the task was rejected because too many tasks are waiting
+   */
+  public boolean execute(Object key, Runnable task) {
+    KeyQueue queue;
+
+    synchronized (this.queues) {
+      var limit = this.capacity.getAsInt();
+      if (limit > 0 && this.pending.get() >= limit) {
+        this.rejected.incrementAndGet();
+        return false;
+      }
+
+      queue = this.queues.computeIfAbsent(key, KeyQueue::new);
+      queue.tasks.add(task);
+      this.pending.incrementAndGet();
+
+      if (queue.running) return true;
+
+      queue.running = true;
+    }
+
+    schedule(queue);
+
+    return true;
+  }
+
+  public int pendingCount() {
+    return this.pending.get();
+  }
+
+  public long rejectedCount() {
+    return this.rejected.get();
+  }
+
+  /**
+   * Wait for the tasks already submitted and stop the workers, tasks submitted later get new ones
+   */
+  public void shutdown(long timeout, TimeUnit unit) {
+    var deadline = System.nanoTime() + unit.toNanos(timeout);
+
+    // a key with more tasks moves to the back of the line by resubmitting itself, so wait for the tasks rather than
+    // for the workers, which would turn that resubmission away
+    try {
+      synchronized (this.queues) {
+        while (this.pending.get() > 0) {
+          var remaining = deadline - System.nanoTime();
+          if (remaining <= 0) break;
+
+          TimeUnit.NANOSECONDS.timedWait(this.queues, remaining);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    ExecutorService workers;
+
+    synchronized (this) {
+      workers = this.workers;
+      this.workers = null;
+    }
+
+    if (workers == null) return;
+
+    workers.shutdown();
+
+    try {
+      if (!workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+        VelocityDiscord.LOGGER.warn("Gave up waiting for {} queued tasks", this.pending.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void drain(KeyQueue queue) {
+    for (var i = 0; i < BATCH_SIZE; i++) {
+      Runnable task;
+
+      synchronized (this.queues) {
+        task = queue.tasks.poll();
+
+        if (task == null) {
+          queue.running = false;
+          this.queues.remove(queue.key);
+          return;
+        }
+      }
+
+      try {
+        task.run();
+      } catch (Exception e) {
+        VelocityDiscord.LOGGER.error("Error while running queued task for `{}`", queue.key, e);
+      } finally {
+        if (this.pending.decrementAndGet() == 0) {
+          synchronized (this.queues) {
+            this.queues.notifyAll();
+          }
+        }
+      }
+    }
+
+    // more left for this key, go to the back of the line
+    schedule(queue);
+  }
+
+  private void schedule(KeyQueue queue) {
+    while (true) {
+      var workers = workers();
+
+      try {
+        workers.execute(() -> drain(queue));
+        return;
+      } catch (RejectedExecutionException e) {
+        // shut down in between, the next round starts new workers
+        synchronized (this) {
+          if (this.workers == workers) this.workers = null;
+        }
+      }
+    }
+  }
+
+  private synchronized ExecutorService workers() {
+    if (this.workers == null) {
+      var counter = new AtomicInteger();
+
+      this.workers = Executors.newFixedThreadPool(this.threads, runnable -> {
+        var thread = new Thread(runnable, this.name + "-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    return this.workers;
+  }
+
+  private static class KeyQueue {
+    private final Object key;
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private boolean running = false;
+
+    private KeyQueue(Object key) {
+      this.key = key;
+    }
+  }
+}
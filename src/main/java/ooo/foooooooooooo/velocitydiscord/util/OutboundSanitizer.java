@@ -0,0 +1,120 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Makes a Minecraft chat line safe to send to Discord in a single pass
+ * <ul>
+ *   <li>raw {@code <@id>}, {@code <@!id>} and {@code <@&id>} pings get a zero width space after the {@code @}</li>
+ *   <li>{@code @name} is replaced with the member's mention, longest name wins</li>
+ *   <li>{@code @everyone} and {@code @here} get a zero width space after the {@code @}, unless allowed</li>
+ *   <li>optionally, Discord markdown is escaped with a backslash</li>
+ * </ul>
+ * The output is the same as running the raw ping filter, the mention replacement and the everyone/here filter one
+ * after another, which is what this used to be.
+ */
+public final class OutboundSanitizer {
+  private static final char ZWSP = '\u200B';
+
+  private OutboundSanitizer() {}
+
+  /**
+   * @param mentions       "@name" patterns mapped to the mention to send, or null to leave names as they are
+   * @param allowEveryone  whether {@code @everyone} and {@code @here} should ping
+   * @param escapeMarkdown whether to escape Discord markdown
+   * @return the same instance if nothing had to change
+   */
+  @Nonnull
+  public static String sanitize(
+    @Nonnull String text,
+    @Nullable PatternTrie<String> mentions,
+    boolean allowEveryone,
+    boolean escapeMarkdown
+  ) {
+    if (mentions != null && mentions.isEmpty()) mentions = null;
+
+    StringBuilder out = null;
+    // everything before this is already in out
+    var copied = 0;
+    var i = 0;
+
+    while (i < text.length()) {
+      var c = text.charAt(i);
+
+      if (c == '<') {
+        var end = rawPingEnd(text, i);
+        if (end < 0) {
+          i++;
+          continue;
+        }
+
+        if (out == null) out = new StringBuilder(text.length() + 16);
+        // the rest of the ping is digits, nothing in there needs escaping
+        out.append(text, copied, i + 2).append(ZWSP).append(text, i + 2, end);
+        copied = i = end;
+      } else if (c == '@') {
+        if (mentions != null) {
+          var match = mentions.longestAt(text, i);
+          if (match != null) {
+            if (out == null) out = new StringBuilder(text.length() + 16);
+            out.append(text, copied, i).append(match.value());
+            copied = i = match.end();
+            continue;
+          }
+        }
+
+        if (!allowEveryone && (text.startsWith("everyone", i + 1) || text.startsWith("here", i + 1))) {
+          if (out == null) out = new StringBuilder(text.length() + 16);
+          out.append(text, copied, i + 1).append(ZWSP);
+          copied = i + 1;
+        }
+
+        i++;
+      } else if (escapeMarkdown && isMarkdown(text, i, c)) {
+        if (out == null) out = new StringBuilder(text.length() + 16);
+        out.append(text, copied, i).append('\\');
+        copied = i;
+        i++;
+      } else {
+        i++;
+      }
+    }
+
+    if (out == null) return text;
+
+    return out.append(text, copied, text.length()).toString();
+  }
+
+  /**
+   * @return the index after the closing {@code >} if a raw ping starts at {@code start}, otherwise -1
+   */
+  private static int rawPingEnd(String text, int start) {
+    var i = start + 1;
+    if (i >= text.length() || text.charAt(i) != '@') return -1;
+    i++;
+
+    if (i < text.length() && (text.charAt(i) == '!' || text.charAt(i) == '&')) i++;
+
+    var digits = i;
+    while (i < text.length() && isDigit(text.charAt(i))) i++;
+
+    if (i == digits || i >= text.length() || text.charAt(i) != '>') return -1;
+
+    return i + 1;
+  }
+
+  // same as \d without UNICODE_CHARACTER_CLASS
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isMarkdown(String text, int i, char c) {
+    return switch (c) {
+      case '\\', '*', '_', '~', '`', '|' -> true;
+      // block quotes, headings and lists only count at the start of a line
+      case '>', '#', '-' -> i == 0 || text.charAt(i - 1) == '\n';
+      default -> false;
+    };
+  }
+}
@@ -0,0 +1,162 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the longest of many patterns that starts at a given position, ignoring ASCII case
+ * <p>
+ * Callers pick the positions worth checking, so a lookup only walks the trie from there and never looks at text the
+ * patterns can't reach. If the same pattern is added twice the first value is kept.
+ */
+public final class PatternTrie<V> {
+  private static final int ROOT = 0;
+
+  // edges as an open addressing table from (state, char) to state
+  private final long[] edgeKeys;
+  private final int[] edgeTargets;
+  private final int edgeMask;
+
+  // pattern ending in this state, or -1
+  private final int[] output;
+
+  private final List<V> values;
+
+  private PatternTrie(Builder<V> builder) {
+    this.output = builder.output.stream().mapToInt(Integer::intValue).toArray();
+    this.values = List.copyOf(builder.values);
+
+    var capacity = Integer.highestOneBit(Math.max(2, builder.edges.size() * 2 - 1)) << 1;
+    this.edgeKeys = new long[capacity];
+    this.edgeTargets = new int[capacity];
+    this.edgeMask = capacity - 1;
+    Arrays.fill(this.edgeKeys, -1L);
+
+    for (var edge : builder.edges) {
+      putEdge(edge.from, edge.c, edge.to);
+    }
+  }
+
+  public static <V> Builder<V> builder() {
+    return new Builder<>();
+  }
+
+  public boolean isEmpty() {
+    return this.values.isEmpty();
+  }
+
+  /**
+   * Longest pattern that starts exactly at {@code start}
+   *
+   * @return null if no pattern starts there
+   */
+  @Nullable
+  public Match<V> longestAt(@Nonnull CharSequence text, int start) {
+    var state = ROOT;
+    var bestEnd = -1;
+    var bestPattern = -1;
+
+    for (var i = start; i < text.length(); i++) {
+      state = next(state, fold(text.charAt(i)));
+      if (state < 0) break;
+
+      if (this.output[state] >= 0) {
+        bestEnd = i + 1;
+        bestPattern = this.output[state];
+      }
+    }
+
+    return bestPattern < 0 ? null : new Match<>(bestEnd, this.values.get(bestPattern));
+  }
+
+  private int next(int state, char c) {
+    var key = edgeKey(state, c);
+    var slot = mix(key) & this.edgeMask;
+
+    while (true) {
+      var existing = this.edgeKeys[slot];
+      if (existing == key) return this.edgeTargets[slot];
+      if (existing == -1L) return -1;
+      slot = (slot + 1) & this.edgeMask;
+    }
+  }
+
+  private void putEdge(int state, char c, int target) {
+    var key = edgeKey(state, c);
+    var slot = mix(key) & this.edgeMask;
+
+    while (this.edgeKeys[slot] != -1L) slot = (slot + 1) & this.edgeMask;
+
+    this.edgeKeys[slot] = key;
+    this.edgeTargets[slot] = target;
+  }
+
+  private static long edgeKey(int state, char c) {
+    return ((long) state << 16) | c;
+  }
+
+  private static int mix(long key) {
+    var h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  // same folding as a CASE_INSENSITIVE regex without UNICODE_CASE
+  private static char fold(char c) {
+    return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+  }
+
+  public static final class Builder<V> {
+    private final List<Integer> output = new ArrayList<>(List.of(-1));
+    private final List<Edge> edges = new ArrayList<>();
+    private final List<V> values = new ArrayList<>();
+
+    // only used while building, the trie uses its own table
+    private final Map<Long, Integer> children = new HashMap<>();
+
+    private Builder() {}
+
+    public Builder<V> add(@Nonnull String pattern, @Nonnull V value) {
+      if (pattern.isEmpty()) return this;
+
+      var state = ROOT;
+
+      for (var i = 0; i < pattern.length(); i++) {
+        var c = fold(pattern.charAt(i));
+        var key = edgeKey(state, c);
+        var next = this.children.get(key);
+
+        if (next == null) {
+          next = this.output.size();
+          this.output.add(-1);
+          this.children.put(key, next);
+          this.edges.add(new Edge(state, c, next));
+        }
+
+        state = next;
+      }
+
+      if (this.output.get(state) < 0) {
+        this.output.set(state, this.values.size());
+        this.values.add(value);
+      }
+
+      return this;
+    }
+
+    public PatternTrie<V> build() {
+      return new PatternTrie<>(this);
+    }
+  }
+
+  /**
+   * @param end index after the last character of the match
+   */
+  public record Match<V>(int end, V value) {}
+
+  private record Edge(int from, char c, int to) {}
+}
@@ -1,56 +1,90 @@
 package ooo.foooooooooooo.velocitydiscord.util;
 
 import javax.annotation.Nonnull;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.function.Supplier;
 
 public class StringTemplate {
-  private final Map<String, String> variables = new HashMap<>();
   @Nonnull
-  private String template;
+  private Template template;
+  private String[] values;
 
   public StringTemplate(@Nonnull String template) {
+    this(Template.of(template));
+  }
+
+  public StringTemplate(@Nonnull Template template) {
     this.template = template;
+    this.values = new String[template.slotCount()];
   }
 
   public StringTemplate add(@Nonnull String key, @Nonnull String value) {
-    this.variables.put(key, value);
+    var slot = this.template.slot(key);
+    if (slot >= 0) this.values[slot] = value;
 
     return this;
   }
 
   public StringTemplate add(@Nonnull String key, int value) {
-    this.variables.put(key, String.valueOf(value));
+    var slot = this.template.slot(key);
+    if (slot >= 0) this.values[slot] = String.valueOf(value);
 
     return this;
   }
 
   public StringTemplate add(@Nonnull String key, boolean value) {
-    this.variables.put(key, String.valueOf(value));
+    var slot = this.template.slot(key);
+    if (slot >= 0) this.values[slot] = String.valueOf(value);
 
     return this;
   }
 
   public StringTemplate add(@Nonnull String key, double value) {
-    this.variables.put(key, String.valueOf(value));
+    var slot = this.template.slot(key);
+    if (slot >= 0) this.values[slot] = String.valueOf(value);
+
+    return this;
+  }
+
+  /**
+   * Add a value that is only computed if the template has the placeholder
+   */
+  public StringTemplate add(@Nonnull String key, @Nonnull Supplier<String> value) {
+    var slot = this.template.slot(key);
+    if (slot >= 0) this.values[slot] = value.get();
 
     return this;
   }
 
+  public boolean uses(@Nonnull String key) {
+    return this.template.uses(key);
+  }
+
   @Override
   @Nonnull
   public String toString() {
-    var result = this.template;
-
-    for (var entry : this.variables.entrySet()) {
-      result = result.replace("{" + entry.getKey() + "}", entry.getValue());
-    }
-
-    return result;
+    return this.template.render(this.values);
   }
 
+  /**
+   * Replace text in the format itself, values that were already added are kept
+   * <p>
+   * The new format is compiled without going through the {@link Template} cache, it's derived at runtime and caching
+   * every variant would grow the cache without bound.
+   */
   public StringTemplate replace(@Nonnull String target, @Nonnull String replacement) {
-    this.template = this.template.replace(target, replacement);
+    var previous = this.template;
+    var previousValues = this.values;
+
+    this.template = Template.compile(previous.source().replace(target, replacement));
+    this.values = new String[this.template.slotCount()];
+
+    // carry over values that were already added
+    for (var i = 0; i < previousValues.length; i++) {
+      if (previousValues[i] == null) continue;
+
+      var slot = this.template.slot(previous.key(i));
+      if (slot >= 0) this.values[slot] = previousValues[i];
+    }
 
     return this;
   }
@@ -0,0 +1,39 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import ooo.foooooooooooo.velocitydiscord.VelocityDiscord;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a task once after a delay, the part of the Velocity scheduler the message classes use
+ * <p>
+ * Classes take one of these instead of going to {@link VelocityDiscord#SERVER} directly, so tests can run their
+ * timers by hand.
+ */
+@FunctionalInterface
+public interface TaskScheduler {
+  Task schedule(Runnable task, long delay, TimeUnit unit);
+
+  /**
+   * Schedules on the proxy, looked up when a task is scheduled so it can be created before the plugin is loaded
+   */
+  static TaskScheduler velocity() {
+    return (task, delay, unit) -> {
+      var scheduled = VelocityDiscord.SERVER
+        .getScheduler()
+        .buildTask(VelocityDiscord.getInstance(), task)
+        .delay(delay, unit)
+        .schedule();
+
+      return scheduled::cancel;
+    };
+  }
+
+  @FunctionalInterface
+  interface Task {
+    /**
+     * Stop the task from running if it didn't start yet
+     */
+    void cancel();
+  }
+}
@@ -0,0 +1,179 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A format string parsed into literal and placeholder segments
+ * <p>
+ * Every distinct {@code {name}} placeholder gets a slot, values are bound by slot index and the whole template is
+ * rendered in a single pass. Placeholders without a bound value are rendered as-is.
+ */
+public final class Template {
+  private static final Map<String, Template> CACHE = new ConcurrentHashMap<>();
+  private static final int MAX_RETAINED_BUILDER = 16 * 1024;
+  private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+  @Nonnull
+  private final String source;
+  // literals.length == refs.length + 1, literal i comes before placeholder i
+  private final String[] literals;
+  private final int[] refs;
+  private final String[] keys;
+  private final Map<String, Integer> slots;
+  private final int literalLength;
+
+  private Template(@Nonnull String source, String[] literals, int[] refs, String[] keys, Map<String, Integer> slots) {
+    this.source = source;
+    this.literals = literals;
+    this.refs = refs;
+    this.keys = keys;
+    this.slots = slots;
+
+    var length = 0;
+    for (var literal : literals) length += literal.length();
+    this.literalLength = length;
+  }
+
+  /**
+   * Get the compiled template for a format, formats are only parsed the first time they are seen
+   */
+  public static Template of(@Nonnull String source) {
+    return CACHE.computeIfAbsent(source, Template::compile);
+  }
+
+  /**
+   * Drop all cached templates, called when the config is reloaded
+   */
+  public static void clearCache() {
+    CACHE.clear();
+  }
+
+  public static Template compile(@Nonnull String source) {
+    var literals = new ArrayList<String>();
+    var refs = new ArrayList<Integer>();
+    var keys = new ArrayList<String>();
+    var slots = new HashMap<String, Integer>();
+
+    var length = source.length();
+    var literalStart = 0;
+    var i = 0;
+
+    while (i < length) {
+      var open = source.indexOf('{', i);
+      if (open < 0) break;
+
+      // find the closing brace, another opening brace restarts the search from there
+      var close = -1;
+      var j = open + 1;
+      for (; j < length; j++) {
+        var c = source.charAt(j);
+        if (c == '}') {
+          close = j;
+          break;
+        }
+        if (c == '{') break;
+      }
+
+      if (close < 0) {
+        i = j;
+        continue;
+      }
+
+      var key = source.substring(open + 1, close);
+      var slot = slots.get(key);
+      if (slot == null) {
+        slot = keys.size();
+        keys.add(key);
+        slots.put(key, slot);
+      }
+
+      literals.add(source.substring(literalStart, open));
+      refs.add(slot);
+
+      literalStart = close + 1;
+      i = close + 1;
+    }
+
+    literals.add(source.substring(literalStart));
+
+    return new Template(
+      source,
+      literals.toArray(String[]::new),
+      refs.stream().mapToInt(Integer::intValue).toArray(),
+      keys.toArray(String[]::new),
+      Map.copyOf(slots)
+    );
+  }
+
+  @Nonnull
+  public String source() {
+    return this.source;
+  }
+
+  public int slotCount() {
+    return this.keys.length;
+  }
+
+  /**
+   * @return the slot index of the placeholder, or -1 if the template doesn't use it
+   */
+  public int slot(@Nonnull String key) {
+    var slot = this.slots.get(key);
+    return slot == null ? -1 : slot;
+  }
+
+  public boolean uses(@Nonnull String key) {
+    return this.slots.containsKey(key);
+  }
+
+  public String key(int slot) {
+    return this.keys[slot];
+  }
+
+  /**
+   * Render the template with values indexed by slot, {@code null} values leave the placeholder untouched
+   */
+  @Nonnull
+  public String render(String[] values) {
+    if (this.refs.length == 0) return this.source;
+
+    var builder = BUILDER.get();
+    builder.setLength(0);
+
+    renderTo(builder, values);
+
+    var result = builder.toString();
+
+    if (builder.capacity() > MAX_RETAINED_BUILDER) {
+      BUILDER.remove();
+    }
+
+    return result;
+  }
+
+  public void renderTo(@Nonnull StringBuilder builder, String[] values) {
+    builder.ensureCapacity(builder.length() + this.literalLength);
+
+    for (var i = 0; i < this.refs.length; i++) {
+      builder.append(this.literals[i]);
+
+      var value = values[this.refs[i]];
+      if (value != null) {
+        builder.append(value);
+      } else {
+        builder.append('{').append(this.keys[this.refs[i]]).append('}');
+      }
+    }
+
+    builder.append(this.literals[this.refs.length]);
+  }
+
+  @Override
+  public String toString() {
+    return this.source;
+  }
+}
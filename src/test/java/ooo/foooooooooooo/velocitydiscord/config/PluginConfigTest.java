@@ -96,6 +96,35 @@ class PluginConfigTest {
     # No color specified, should inherit from main
     """;
 
+  String webhookPoolTestConfig = """
+    config_version = "2.0"
+    
+    [discord]
+    token = "test_token"
+    channel = "123456789012345678"
+    
+    [discord.webhook]
+    url = "https://discord.com/api/webhooks/111/token-a"
+    pool = [
+      "https://discord.com/api/webhooks/222/token-b",
+      "not-a-webhook",
+      "https://discord.com/api/webhooks/111/token-a",
+      "https://discord.com/api/webhooks/333/token-c"
+    ]
+    """;
+
+  String webhookPoolOnlyTestConfig = """
+    config_version = "2.0"
+    
+    [discord]
+    token = "test_token"
+    channel = "123456789012345678"
+    
+    [discord.webhook]
+    url = ""
+    pool = ["https://discord.com/api/webhooks/222/token-b"]
+    """;
+
   @Test
   void shouldThrowGivenNullConfig() {
     try {
@@ -189,6 +218,40 @@ class PluginConfigTest {
     assertEquals(Color.decode("#00ff00"), nonExistentConfig.getDiscordChatConfig().MESSAGE_EMBED_COLOR.get());
   }
 
+  @Test
+  void shouldLoadWebhookPool(@TempDir Path tempDir) {
+    var config = TestUtils.createConfig(this.webhookPoolTestConfig, tempDir, c -> new PluginConfig(c, this.logger));
+
+    config.loadConfig();
+
+    var webhook = config.getDiscordConfig().WEBHOOK;
+
+    // url comes first, invalid and duplicate entries are skipped
+    assertEquals("111", webhook.webhookId);
+    assertEquals(List.of("111", "222", "333"), webhook.webhookIds);
+    assertEquals(
+      List.of(
+        "https://discord.com/api/webhooks/111/token-a",
+        "https://discord.com/api/webhooks/222/token-b",
+        "https://discord.com/api/webhooks/333/token-c"
+      ),
+      webhook.urls
+    );
+  }
+
+  @Test
+  void shouldAcceptWebhookPoolWithoutUrl(@TempDir Path tempDir) {
+    var config = TestUtils.createConfig(this.webhookPoolOnlyTestConfig, tempDir, c -> new PluginConfig(c, this.logger));
+
+    config.loadConfig();
+
+    var webhook = config.getDiscordConfig().WEBHOOK;
+
+    assertNull(webhook.webhookId);
+    assertEquals(List.of("222"), webhook.webhookIds);
+    assertFalse(webhook.invalid());
+  }
+
   @SuppressWarnings("OptionalGetWithoutIsPresent")
   @Test
   void shouldLoadConfig(@TempDir Path tempDir) {
@@ -0,0 +1,118 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatCompletionsTest {
+  private final Map<String, List<String>> servers = new HashMap<>();
+  private final ChatCompletions completions = new ChatCompletions(server -> this.servers.getOrDefault(server, List.of()));
+
+  private static class FakePlayer implements ChatCompletions.Recipient {
+    private final UUID id = UUID.randomUUID();
+    private final List<String> sent = new ArrayList<>();
+    private boolean active = true;
+
+    @Override
+    public UUID id() {
+      return this.id;
+    }
+
+    @Override
+    public boolean isActive() {
+      return this.active;
+    }
+
+    @Override
+    public void addCompletions(Collection<String> completions) {
+      this.sent.add("+" + new TreeSet<>(completions));
+    }
+
+    @Override
+    public void removeCompletions(Collection<String> completions) {
+      this.sent.add("-" + new TreeSet<>(completions));
+    }
+  }
+
+  @Test
+  void shouldSendFullListOnce() {
+    this.servers.put("lobby", List.of("@a", "@b"));
+    var player = new FakePlayer();
+
+    this.completions.update(player, "lobby");
+    this.completions.refresh();
+
+    assertEquals(List.of("+[@a, @b]"), player.sent);
+  }
+
+  @Test
+  void shouldSendOnlyChanges() {
+    this.servers.put("lobby", List.of("@a", "@b"));
+    var player = new FakePlayer();
+    this.completions.update(player, "lobby");
+
+    this.servers.put("lobby", List.of("@b", "@c", "@d"));
+    this.completions.refresh();
+
+    assertEquals(List.of("+[@a, @b]", "-[@a]", "+[@c, @d]"), player.sent);
+  }
+
+  @Test
+  void shouldSwitchListsWithServer() {
+    this.servers.put("lobby", List.of("@a", "@b"));
+    this.servers.put("survival", List.of("@b", "@c"));
+    var player = new FakePlayer();
+
+    this.completions.update(player, "lobby");
+    this.completions.update(player, "survival");
+
+    // the same list again, nothing to send
+    this.completions.update(player, "survival");
+
+    assertEquals(List.of("+[@a, @b]", "-[@a]", "+[@c]"), player.sent);
+  }
+
+  @Test
+  void shouldFillInOnceNamesArePublished() {
+    // registered before the bot was ready
+    var player = new FakePlayer();
+    this.completions.update(player, "lobby");
+    assertTrue(player.sent.isEmpty());
+
+    this.servers.put("lobby", List.of("@a"));
+    this.completions.refresh();
+
+    assertEquals(List.of("+[@a]"), player.sent);
+  }
+
+  @Test
+  void shouldForgetPlayersThatLeft() {
+    this.servers.put("lobby", List.of("@a"));
+    var removed = new FakePlayer();
+    var inactive = new FakePlayer();
+    this.completions.update(removed, "lobby");
+    this.completions.update(inactive, "lobby");
+
+    this.completions.remove(removed.id());
+    inactive.active = false;
+
+    this.servers.put("lobby", List.of("@b"));
+    this.completions.refresh();
+
+    assertEquals(List.of("+[@a]"), removed.sent);
+    assertEquals(List.of("+[@a]"), inactive.sent);
+
+    // comes back as a new player and gets the full list
+    this.completions.update(removed, "lobby");
+    assertEquals(Set.of("+[@a]", "+[@b]"), Set.copyOf(removed.sent));
+  }
+}
@@ -0,0 +1,116 @@
+package ooo.foooooooooooo.velocitydiscord.discord;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemberNamesTest {
+  private int capacity = 100;
+  private int maxCompletions = 3;
+
+  private MemberNames names(boolean lean) {
+    return new MemberNames(lean, () -> this.capacity, () -> this.maxCompletions);
+  }
+
+  @Test
+  void shouldRankActiveMembersFirst() {
+    var names = names(false);
+    names.put(1, "a");
+    names.put(2, "b");
+    names.put(3, "c");
+    names.put(4, "d");
+
+    assertEquals(List.of("@a", "@b", "@c"), names.rankCompletions());
+
+    assertTrue(names.touch(4, "d"));
+    assertTrue(names.touch(2, "b"));
+    assertEquals(List.of("@b", "@d", "@a"), names.rankCompletions());
+
+    // writing again while already first changes nothing
+    assertFalse(names.touch(2, "b"));
+  }
+
+  @Test
+  void shouldCapCompletions() {
+    var names = names(false);
+    for (var i = 0; i < 10; i++) {
+      names.put(i, "member" + i);
+      names.touch(i, "member" + i);
+    }
+
+    assertEquals(List.of("@member9", "@member8", "@member7"), names.rankCompletions());
+
+    this.maxCompletions = 0;
+    assertEquals(List.of(), names.rankCompletions());
+
+    // a larger cap after a reload fills up with the members that were pushed out of the ranking
+    this.maxCompletions = 5;
+    names.applyLimits();
+    assertEquals(List.of("@member9", "@member8", "@member7", "@member0", "@member1"), names.rankCompletions());
+  }
+
+  @Test
+  void shouldFollowRenamesAndRemovals() {
+    var names = names(false);
+    names.put(1, "a");
+    names.put(2, "b");
+    names.touch(2, "b");
+
+    assertTrue(names.put(2, "bee"));
+    assertFalse(names.put(2, "bee"));
+    assertEquals(List.of("@bee", "@a"), names.rankCompletions());
+
+    assertTrue(names.remove(2));
+    assertFalse(names.remove(2));
+    assertEquals(List.of("@a"), names.rankCompletions());
+
+    // not a member anymore, so writing doesn't rank them
+    assertFalse(names.touch(2, "bee"));
+  }
+
+  @Test
+  void shouldEvictLeastRecentlySeenInLeanMode() {
+    this.capacity = 2;
+    var names = names(true);
+    names.put(1, "a");
+    names.touch(1, "a");
+    names.put(2, "b");
+    names.put(3, "c");
+
+    // a was seen first, so it goes, together with its place in the ranking
+    assertFalse(names.contains(1));
+    assertEquals(List.of("@b", "@c"), names.rankCompletions());
+  }
+
+  @Test
+  void shouldNotReorderLeanCacheWhenRanking() {
+    this.capacity = 2;
+    var names = names(true);
+    names.put(1, "a");
+    names.put(2, "b");
+    names.touch(1, "a");
+
+    // ranking reads a, which must not count as seeing them again
+    assertEquals(List.of("@a", "@b"), names.rankCompletions());
+    names.put(3, "c");
+
+    assertFalse(names.contains(1));
+    assertTrue(names.contains(2));
+  }
+
+  @Test
+  void shouldShrinkToNewCapacity() {
+    var names = names(true);
+    for (var i = 0; i < 10; i++) {
+      names.put(i, "member" + i);
+    }
+    names.touch(0, "member0");
+
+    this.capacity = 4;
+    names.applyLimits();
+
+    assertEquals(List.of("@member6", "@member7", "@member8"), names.rankCompletions());
+  }
+}
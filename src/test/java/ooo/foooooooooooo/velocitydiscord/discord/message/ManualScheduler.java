@@ -0,0 +1,71 @@
+package ooo.foooooooooooo.velocitydiscord.discord.message;
+
+import ooo.foooooooooooo.velocitydiscord.util.TaskScheduler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Scheduler and nanosecond clock that only move when a test calls {@link #advance}
+ */
+class ManualScheduler implements TaskScheduler, LongSupplier {
+  private final List<Scheduled> tasks = new ArrayList<>();
+  // not 0, so code comparing against a zeroed field still sees time pass
+  private long now = TimeUnit.HOURS.toNanos(1);
+  private long sequence = 0;
+
+  @Override
+  public synchronized Task schedule(Runnable task, long delay, TimeUnit unit) {
+    var scheduled = new Scheduled(this.now + unit.toNanos(delay), this.sequence++, task);
+    this.tasks.add(scheduled);
+    return () -> {
+      synchronized (this) {
+        this.tasks.remove(scheduled);
+      }
+    };
+  }
+
+  @Override
+  public synchronized long getAsLong() {
+    return this.now;
+  }
+
+  /**
+   * Move the clock forward, running every task that comes due on the way at the time it was due
+   */
+  public void advance(long amount, TimeUnit unit) {
+    var target = this.now + unit.toNanos(amount);
+
+    while (true) {
+      Scheduled next;
+
+      synchronized (this) {
+        next = this.tasks
+          .stream()
+          .filter(t -> t.at <= target)
+          .min(Comparator.comparingLong(Scheduled::at).thenComparingLong(Scheduled::sequence))
+          .orElse(null);
+
+        if (next == null) {
+          this.now = target;
+          return;
+        }
+
+        this.tasks.remove(next);
+        this.now = Math.max(this.now, next.at);
+      }
+
+      // outside the lock, the task may schedule more work
+      next.task.run();
+    }
+  }
+
+  public synchronized int pending() {
+    return this.tasks.size();
+  }
+
+  private record Scheduled(long at, long sequence, Runnable task) {}
+}
@@ -0,0 +1,153 @@
+package ooo.foooooooooooo.velocitydiscord.discord.message;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import ooo.foooooooooooo.config.TestUtils;
+import ooo.foooooooooooo.velocitydiscord.discord.message.OutboundScheduler.Priority;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageBatcherTest {
+  MessageBatcherTest() {
+    TestUtils.setLogLevel();
+  }
+
+  private final Logger logger = LoggerFactory.getLogger(MessageBatcherTest.class);
+  private final ManualScheduler scheduler = new ManualScheduler();
+  private final List<Sent> sent = new ArrayList<>();
+  private final MessageBatcher batcher = new MessageBatcher(
+    (channel, message, priority) -> this.sent.add(new Sent(
+      channel.getIdLong(),
+      message.getContent(),
+      message.getEmbeds().size(),
+      priority
+    )),
+    this.scheduler,
+    () -> 500,
+    this.logger
+  );
+
+  private record Sent(long channel, String content, int embeds, Priority priority) {}
+
+  // the batcher only ever asks a channel for its id
+  private static TextChannel channel(long id) {
+    return (TextChannel) Proxy.newProxyInstance(
+      TextChannel.class.getClassLoader(),
+      new Class<?>[] {TextChannel.class},
+      (proxy, method, args) -> switch (method.getName()) {
+        case "getIdLong" -> id;
+        case "hashCode" -> Long.hashCode(id);
+        case "equals" -> proxy == args[0];
+        case "toString" -> "channel " + id;
+        default -> throw new UnsupportedOperationException(method.getName());
+      }
+    );
+  }
+
+  private static MessageEmbed embed(int length) {
+    return new EmbedBuilder().setDescription("e".repeat(length)).build();
+  }
+
+  @Test
+  void shouldMergeLinesWithinWindow() {
+    var channel = channel(1);
+
+    this.batcher.add(channel, "a", Priority.LOW);
+    this.scheduler.advance(200, TimeUnit.MILLISECONDS);
+    this.batcher.add(channel, "b", Priority.NORMAL);
+
+    // the window started with the first line
+    this.scheduler.advance(299, TimeUnit.MILLISECONDS);
+    assertTrue(this.sent.isEmpty());
+
+    this.scheduler.advance(1, TimeUnit.MILLISECONDS);
+    assertEquals(List.of(new Sent(1, "a\nb", 0, Priority.NORMAL)), this.sent);
+
+    // a new window, with its own priority
+    this.batcher.add(channel, "c", Priority.LOW);
+    this.scheduler.advance(500, TimeUnit.MILLISECONDS);
+    assertEquals(new Sent(1, "c", 0, Priority.LOW), this.sent.get(1));
+  }
+
+  @Test
+  void shouldFlushBeforeContentLimit() {
+    var channel = channel(1);
+    var half = "x".repeat(Message.MAX_CONTENT_LENGTH / 2);
+
+    this.batcher.add(channel, half, Priority.LOW);
+    this.batcher.add(channel, half, Priority.LOW);
+
+    // two halves plus the line break don't fit
+    assertEquals(List.of(new Sent(1, half, 0, Priority.LOW)), this.sent);
+
+    var tooLong = "y".repeat(Message.MAX_CONTENT_LENGTH);
+    this.batcher.add(channel, tooLong, Priority.LOW);
+
+    // sent on its own, right after what was waiting
+    assertEquals(List.of(half, half, tooLong), this.sent.stream().map(Sent::content).toList());
+
+    this.scheduler.advance(1, TimeUnit.SECONDS);
+    assertEquals(3, this.sent.size());
+  }
+
+  @Test
+  void shouldFlushBeforeEmbedLimits() {
+    var channel = channel(1);
+
+    for (var i = 0; i <= Message.MAX_EMBED_COUNT; i++) {
+      this.batcher.addEmbed(channel, embed(10), Priority.NORMAL);
+    }
+
+    assertEquals(List.of(new Sent(1, "", Message.MAX_EMBED_COUNT, Priority.NORMAL)), this.sent);
+
+    this.scheduler.advance(500, TimeUnit.MILLISECONDS);
+    assertEquals(new Sent(1, "", 1, Priority.NORMAL), this.sent.get(1));
+
+    // together these go over the total length of embeds in one message
+    this.batcher.addEmbed(channel, embed(MessageEmbed.EMBED_MAX_LENGTH_BOT / 2 + 1), Priority.NORMAL);
+    this.batcher.addEmbed(channel, embed(MessageEmbed.EMBED_MAX_LENGTH_BOT / 2), Priority.NORMAL);
+    this.scheduler.advance(500, TimeUnit.MILLISECONDS);
+
+    assertEquals(List.of(1, 1), this.sent.subList(2, this.sent.size()).stream().map(Sent::embeds).toList());
+  }
+
+  @Test
+  void shouldKeepTextAndEmbedsApartPerChannel() {
+    var first = channel(1);
+    var second = channel(2);
+
+    this.batcher.add(first, "a", Priority.LOW);
+    this.batcher.add(second, "b", Priority.LOW);
+    this.batcher.addEmbed(first, embed(10), Priority.NORMAL);
+
+    // only the text of the channel that got an embed is flushed
+    assertEquals(List.of(new Sent(1, "a", 0, Priority.LOW)), this.sent);
+
+    this.batcher.add(second, "c", Priority.LOW);
+    this.scheduler.advance(500, TimeUnit.MILLISECONDS);
+
+    assertEquals(List.of(new Sent(2, "b\nc", 0, Priority.LOW), new Sent(1, "", 1, Priority.NORMAL)),
+      this.sent.subList(1, this.sent.size())
+    );
+  }
+
+  @Test
+  void shouldSendEverythingOnFlushAll() {
+    this.batcher.add(channel(1), "a", Priority.LOW);
+    this.batcher.addEmbed(channel(2), embed(10), Priority.HIGH);
+
+    this.batcher.flushAll();
+    assertEquals(2, this.sent.size());
+    assertEquals(0, this.scheduler.pending());
+  }
+}
@@ -0,0 +1,170 @@
+package ooo.foooooooooooo.velocitydiscord.discord.message;
+
+import ooo.foooooooooooo.config.TestUtils;
+import ooo.foooooooooooo.velocitydiscord.config.DiscordChatConfig.MessageCategory;
+import ooo.foooooooooooo.velocitydiscord.config.OutboundConfig;
+import ooo.foooooooooooo.velocitydiscord.discord.message.OutboundScheduler.Priority;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundSchedulerTest {
+  OutboundSchedulerTest() {
+    TestUtils.setLogLevel();
+  }
+
+  private final Logger logger = LoggerFactory.getLogger(OutboundSchedulerTest.class);
+  private final ManualScheduler clock = new ManualScheduler();
+  private final OutboundConfig config = new OutboundConfig(null);
+  private final OutboundScheduler scheduler = new OutboundScheduler(() -> this.config, this.clock, this.logger);
+
+  // requests handed off and not answered yet, in the order they were sent
+  private final List<Sent> sent = new ArrayList<>();
+  private final List<String> finished = new ArrayList<>();
+
+  private record Sent(long route, String text, Runnable onSuccess, Consumer<Throwable> onError) {}
+
+  private void submit(long route, Priority priority, String text) {
+    submit(route, priority, null, null, text);
+  }
+
+  private void submit(long route, Priority priority, MessageCategory category, String collapseKey, String text) {
+    this.scheduler.enqueue(
+      route,
+      priority,
+      category,
+      collapseKey,
+      () -> (onSuccess, onError) -> this.sent.add(new Sent(route, text, onSuccess, onError)),
+      () -> this.finished.add(text)
+    );
+  }
+
+  private List<String> texts() {
+    return this.sent.stream().map(Sent::text).toList();
+  }
+
+  // answers the oldest request still in flight on the route
+  private void succeed(long route) {
+    var request = this.sent.stream().filter(s -> s.route == route).findFirst().orElseThrow();
+    this.sent.remove(request);
+    request.onSuccess.run();
+  }
+
+  private void enableShedding() {
+    this.config.MAX_BACKLOG_AGE_SECONDS = 10;
+    this.config.CHAT_BACKLOG_POLICY = OutboundConfig.BacklogPolicy.DROP_OLDEST;
+    this.config.COLLAPSE_JOIN_LEAVE = true;
+  }
+
+  @Test
+  void shouldKeepOneRequestInFlightPerRoute() {
+    submit(1, Priority.LOW, "a1");
+    submit(1, Priority.LOW, "a2");
+    submit(2, Priority.LOW, "b1");
+    submit(1, Priority.LOW, "a3");
+
+    // the other route isn't held up by the first one
+    assertEquals(List.of("a1", "b1"), texts());
+
+    succeed(1);
+    assertEquals(List.of("b1", "a2"), texts());
+
+    this.sent.remove(0).onError.accept(new RuntimeException("unknown channel"));
+    succeed(1);
+    assertEquals(List.of("a3"), texts());
+    assertEquals(List.of("a1", "b1", "a2"), this.finished);
+  }
+
+  @Test
+  void shouldSendHigherLanesFirst() {
+    submit(1, Priority.LOW, "chat 1");
+    submit(1, Priority.LOW, "chat 2");
+    submit(1, Priority.NORMAL, "join");
+    submit(1, Priority.HIGH, "server stop");
+    submit(1, Priority.NORMAL, "leave");
+
+    for (var i = 0; i < 4; i++) {
+      succeed(1);
+    }
+
+    assertEquals(List.of("chat 2"), texts());
+    assertEquals(List.of("chat 1", "server stop", "join", "leave"), this.finished);
+  }
+
+  @Test
+  void shouldShedOldChat() {
+    enableShedding();
+
+    submit(1, Priority.LOW, "in flight");
+    submit(1, Priority.LOW, "old 1");
+    submit(1, Priority.NORMAL, "join");
+    submit(1, Priority.LOW, "old 2");
+
+    this.clock.advance(11, TimeUnit.SECONDS);
+    submit(1, Priority.LOW, "new");
+
+    succeed(1);
+    succeed(1);
+
+    // only chat older than the max age goes, the join is kept no matter how old
+    assertEquals(List.of("new"), texts());
+    assertEquals(List.of("in flight", "old 1", "old 2", "join"), this.finished);
+    assertEquals(2, this.scheduler.droppedCount());
+  }
+
+  @Test
+  void shouldKeepOldChatWithKeepPolicy() {
+    enableShedding();
+    this.config.CHAT_BACKLOG_POLICY = OutboundConfig.BacklogPolicy.KEEP;
+
+    submit(1, Priority.LOW, "in flight");
+    submit(1, Priority.LOW, "old");
+
+    this.clock.advance(11, TimeUnit.SECONDS);
+    succeed(1);
+
+    assertEquals(List.of("old"), texts());
+    assertEquals(0, this.scheduler.droppedCount());
+  }
+
+  @Test
+  void shouldCollapseJoinAndLeaveOfOldBacklog() {
+    enableShedding();
+
+    submit(1, Priority.HIGH, "server start");
+    submit(1, Priority.NORMAL, MessageCategory.JOIN, "steve", "steve joined");
+    submit(1, Priority.NORMAL, MessageCategory.JOIN, "alex", "alex joined");
+
+    this.clock.advance(11, TimeUnit.SECONDS);
+    submit(1, Priority.NORMAL, MessageCategory.DISCONNECT, "steve", "steve disconnected");
+
+    // neither of them is ever sent, but both are finished so webhook slots are released
+    assertEquals(List.of("steve joined", "steve disconnected"), this.finished);
+    assertEquals(2, this.scheduler.collapsedCount());
+
+    succeed(1);
+    assertEquals(List.of("alex joined"), texts());
+  }
+
+  @Test
+  void shouldNotCollapseFreshBacklog() {
+    enableShedding();
+
+    submit(1, Priority.HIGH, "server start");
+    submit(1, Priority.NORMAL, MessageCategory.JOIN, "steve", "steve joined");
+    submit(1, Priority.NORMAL, MessageCategory.LEAVE, "steve", "steve left");
+
+    succeed(1);
+    succeed(1);
+
+    assertEquals(List.of("steve left"), texts());
+    assertEquals(0, this.scheduler.collapsedCount());
+  }
+}
@@ -0,0 +1,148 @@
+package ooo.foooooooooooo.velocitydiscord.discord.message;
+
+import ooo.foooooooooooo.config.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpoolTest {
+  SpoolTest() {
+    TestUtils.setLogLevel();
+  }
+
+  private final Logger logger = LoggerFactory.getLogger(SpoolTest.class);
+
+  private static final Spool.Codec<String> CODEC = new Spool.Codec<>() {
+    @Override
+    public void write(String value, DataOutput out) throws IOException {
+      out.writeUTF(value);
+    }
+
+    @Override
+    public String read(DataInput in) throws IOException {
+      return in.readUTF();
+    }
+  };
+
+  private Spool<String> open(Path dir, long segmentSize) throws IOException {
+    return new Spool<>(dir, CODEC, segmentSize, this.logger);
+  }
+
+  private static List<Path> segments(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.filter(p -> p.getFileName().toString().startsWith("segment-")).sorted().toList();
+    }
+  }
+
+  @Test
+  void shouldReplayInOrderAfterRestart(@TempDir Path dir) throws IOException {
+    var spool = open(dir, 1024 * 1024);
+    for (var i = 0; i < 100; i++) {
+      assertTrue(spool.append("message " + i));
+    }
+    spool.close();
+
+    var reopened = open(dir, 1024 * 1024);
+    var replayed = reopened.drain(0);
+
+    var expected = new ArrayList<String>();
+    for (var i = 0; i < 100; i++) {
+      expected.add("message " + i);
+    }
+
+    assertEquals(expected, replayed);
+    assertTrue(segments(dir).isEmpty());
+    assertTrue(reopened.drain(0).isEmpty());
+  }
+
+  @Test
+  void shouldRotateSegments(@TempDir Path dir) throws IOException {
+    var spool = open(dir, 64);
+    for (var i = 0; i < 20; i++) {
+      spool.append("a message that is long enough " + i);
+    }
+    spool.sync();
+
+    assertTrue(segments(dir).size() > 1);
+
+    var replayed = spool.drain(0);
+    assertEquals(20, replayed.size());
+    assertEquals("a message that is long enough 0", replayed.get(0));
+    assertEquals("a message that is long enough 19", replayed.get(19));
+  }
+
+  @Test
+  void shouldIgnoreTornTail(@TempDir Path dir) throws IOException {
+    var spool = open(dir, 1024 * 1024);
+    spool.append("first");
+    spool.append("second");
+    spool.close();
+
+    // half written record at the end of the segment
+    var segment = segments(dir).get(0);
+    Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+    assertEquals(List.of("first", "second"), open(dir, 1024 * 1024).drain(0));
+  }
+
+  @Test
+  void shouldNotReplayTwice(@TempDir Path dir) throws IOException {
+    var spool = open(dir, 1024 * 1024);
+    spool.append("first");
+    spool.append("second");
+    spool.close();
+
+    // keep a copy of the segment, as if deleting it after the replay had failed
+    var segment = segments(dir).get(0);
+    var copy = Files.readAllBytes(segment);
+
+    assertEquals(List.of("first", "second"), open(dir, 1024 * 1024).drain(0));
+
+    Files.write(segment, copy);
+
+    var reopened = open(dir, 1024 * 1024);
+    reopened.append("third");
+
+    assertEquals(List.of("third"), reopened.drain(0));
+  }
+
+  @Test
+  void shouldSkipExpiredMessages(@TempDir Path dir) throws IOException {
+    var now = new long[]{1_000_000};
+    var spool = new Spool<>(dir, CODEC, 1024 * 1024, this.logger, () -> now[0]);
+
+    spool.append("old");
+    now[0] += 50;
+    spool.append("new");
+
+    assertEquals(List.of("new"), spool.drain(25));
+  }
+
+  @Test
+  void shouldTurnAwayAppendsUntilReopened(@TempDir Path dir) throws IOException {
+    var spool = open(dir, 1024 * 1024);
+    spool.append("first");
+
+    assertEquals(List.of("first"), spool.drain(0));
+
+    // appended after the replay, nothing would ever read it until the next one
+    assertFalse(spool.append("late"));
+
+    spool.reopen();
+    assertTrue(spool.append("second"));
+    assertEquals(List.of("second"), spool.drain(0));
+  }
+}
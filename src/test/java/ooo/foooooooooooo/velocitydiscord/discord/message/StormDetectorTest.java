@@ -0,0 +1,133 @@
+package ooo.foooooooooooo.velocitydiscord.discord.message;
+
+import ooo.foooooooooooo.config.TestUtils;
+import ooo.foooooooooooo.velocitydiscord.config.DiscordChatConfig;
+import ooo.foooooooooooo.velocitydiscord.config.DiscordChatConfig.MessageCategory;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StormDetectorTest {
+  StormDetectorTest() {
+    TestUtils.setLogLevel();
+  }
+
+  private final Logger logger = LoggerFactory.getLogger(StormDetectorTest.class);
+  private final ManualScheduler scheduler = new ManualScheduler();
+  private final List<String> summaries = new ArrayList<>();
+  private final DiscordChatConfig config = new DiscordChatConfig(null);
+
+  private StormDetector detector(int threshold) {
+    this.config.STORM_THRESHOLD = threshold;
+    this.config.STORM_WINDOW_SECONDS = 10;
+    this.config.STORM_SETTLE_SECONDS = 15;
+
+    return new StormDetector(
+      (server, category, previous, count) -> this.summaries.add(server + " " + category + " " + previous + " " + count),
+      server -> this.config,
+      this.scheduler,
+      this.scheduler,
+      this.logger
+    );
+  }
+
+  @Test
+  void shouldPassEverythingWhenDisabled() {
+    var detector = detector(0);
+
+    for (var i = 0; i < 100; i++) {
+      assertTrue(detector.offer("lobby", MessageCategory.JOIN, null));
+    }
+
+    assertEquals(0, this.scheduler.pending());
+  }
+
+  @Test
+  void shouldSummarizeOnlyPastThreshold() {
+    var detector = detector(3);
+
+    for (var i = 0; i < 3; i++) {
+      assertTrue(detector.offer("lobby", MessageCategory.JOIN, null));
+    }
+
+    assertFalse(detector.offer("lobby", MessageCategory.JOIN, null));
+    assertFalse(detector.offer("lobby", MessageCategory.LEAVE, null));
+
+    // other servers are counted on their own
+    assertTrue(detector.offer("survival", MessageCategory.JOIN, null));
+  }
+
+  @Test
+  void shouldForgetEventsOutsideWindow() {
+    var detector = detector(3);
+
+    for (var i = 0; i < 3; i++) {
+      assertTrue(detector.offer("lobby", MessageCategory.JOIN, null));
+      this.scheduler.advance(4, TimeUnit.SECONDS);
+    }
+
+    // the first event is 12 seconds old by now, so this is only the third in the window
+    assertTrue(detector.offer("lobby", MessageCategory.JOIN, null));
+  }
+
+  @Test
+  void shouldEmitSummariesOnceSettled() {
+    var detector = detector(2);
+
+    detector.offer("lobby", MessageCategory.JOIN, null);
+    detector.offer("lobby", MessageCategory.JOIN, null);
+    detector.offer("lobby", MessageCategory.JOIN, null);
+    detector.offer("lobby", MessageCategory.SERVER_SWITCH, "hub");
+    detector.offer("lobby", MessageCategory.DISCONNECT, null);
+    detector.offer("lobby", MessageCategory.LEAVE, null);
+
+    this.scheduler.advance(14, TimeUnit.SECONDS);
+    assertTrue(this.summaries.isEmpty());
+
+    this.scheduler.advance(1, TimeUnit.SECONDS);
+    assertEquals(
+      List.of("lobby JOIN null 1", "lobby SERVER_SWITCH hub 1", "lobby LEAVE null 2"),
+      this.summaries
+    );
+
+    // settled, so the next event starts counting from scratch
+    assertTrue(detector.offer("lobby", MessageCategory.JOIN, null));
+  }
+
+  @Test
+  void shouldWaitWhileEventsKeepComing() {
+    var detector = detector(1);
+
+    detector.offer("lobby", MessageCategory.JOIN, null);
+    assertFalse(detector.offer("lobby", MessageCategory.JOIN, null));
+
+    for (var i = 0; i < 5; i++) {
+      this.scheduler.advance(10, TimeUnit.SECONDS);
+      assertFalse(detector.offer("lobby", MessageCategory.JOIN, null));
+    }
+
+    this.scheduler.advance(14, TimeUnit.SECONDS);
+    assertTrue(this.summaries.isEmpty());
+
+    this.scheduler.advance(1, TimeUnit.SECONDS);
+    assertEquals(List.of("lobby JOIN null 6"), this.summaries);
+  }
+
+  @Test
+  void shouldFlushPendingSummaries() {
+    var detector = detector(1);
+
+    detector.offer("lobby", MessageCategory.JOIN, null);
+    detector.offer("lobby", MessageCategory.JOIN, null);
+    detector.flushAll();
+
+    assertEquals(List.of("lobby JOIN null 1"), this.summaries);
+    assertEquals(0, this.scheduler.pending());
+  }
+}
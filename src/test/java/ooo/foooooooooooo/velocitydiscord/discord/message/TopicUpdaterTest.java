@@ -0,0 +1,152 @@
+package ooo.foooooooooooo.velocitydiscord.discord.message;
+
+import ooo.foooooooooooo.config.TestUtils;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopicUpdaterTest {
+  TopicUpdaterTest() {
+    TestUtils.setLogLevel();
+  }
+
+  private final Logger logger = LoggerFactory.getLogger(TopicUpdaterTest.class);
+  private final ManualScheduler scheduler = new ManualScheduler();
+  private final TopicUpdater updater = new TopicUpdater(this.scheduler, this.scheduler, this.logger);
+
+  private static class FakeChannel implements TopicUpdater.Channel {
+    private final List<String> sent = new ArrayList<>();
+    private String topic;
+    private boolean failing = false;
+
+    private FakeChannel(String topic) {
+      this.topic = topic;
+    }
+
+    @Override
+    public long id() {
+      return 1;
+    }
+
+    @Override
+    public String topic() {
+      return this.topic;
+    }
+
+    @Override
+    public void setTopic(String text, Consumer<Throwable> onError) {
+      this.sent.add(text);
+
+      if (this.failing) {
+        onError.accept(new RuntimeException("missing permissions"));
+      } else {
+        this.topic = text;
+      }
+    }
+  }
+
+  @Test
+  void shouldOnlySendLastTextOfBurst() {
+    var channel = new FakeChannel(null);
+
+    for (var i = 0; i < 4; i++) {
+      this.updater.update(channel, "players: " + i);
+      this.scheduler.advance(1, TimeUnit.SECONDS);
+    }
+
+    // the quiet period started over with every update
+    this.scheduler.advance(3, TimeUnit.SECONDS);
+    assertTrue(channel.sent.isEmpty());
+
+    this.scheduler.advance(1, TimeUnit.SECONDS);
+    assertEquals(List.of("players: 3"), channel.sent);
+  }
+
+  @Test
+  void shouldSendAfterMaxWaitWhileTextKeepsChanging() {
+    var channel = new FakeChannel(null);
+
+    for (var i = 0; i < 8; i++) {
+      this.updater.update(channel, "players: " + i);
+      this.scheduler.advance(4, TimeUnit.SECONDS);
+    }
+
+    // first change at 0s, the update at 28s would be held until 33s without the cap
+    assertEquals(List.of("players: 7"), channel.sent);
+  }
+
+  @Test
+  void shouldHoldThirdEditUntilWindowFrees() {
+    var channel = new FakeChannel(null);
+
+    this.updater.update(channel, "a");
+    this.scheduler.advance(5, TimeUnit.SECONDS);
+    this.updater.update(channel, "b");
+    this.scheduler.advance(5, TimeUnit.SECONDS);
+    assertEquals(List.of("a", "b"), channel.sent);
+
+    this.updater.update(channel, "c");
+    this.scheduler.advance(9, TimeUnit.MINUTES);
+    assertEquals(List.of("a", "b"), channel.sent);
+
+    // the first edit was sent at 5s, so the window frees up 10 minutes after that
+    this.scheduler.advance(54, TimeUnit.SECONDS);
+    assertEquals(List.of("a", "b"), channel.sent);
+
+    this.scheduler.advance(1, TimeUnit.SECONDS);
+    assertEquals(List.of("a", "b", "c"), channel.sent);
+  }
+
+  @Test
+  void shouldCancelWhenTextGoesBack() {
+    var channel = new FakeChannel("players: 1");
+
+    this.updater.update(channel, "players: 2");
+    this.scheduler.advance(2, TimeUnit.SECONDS);
+    this.updater.update(channel, "players: 1");
+
+    assertEquals(0, this.scheduler.pending());
+
+    this.scheduler.advance(1, TimeUnit.MINUTES);
+    assertTrue(channel.sent.isEmpty());
+  }
+
+  @Test
+  void shouldRetrySameTextAfterFailure() {
+    var channel = new FakeChannel(null);
+    channel.failing = true;
+
+    this.updater.update(channel, "a");
+    this.scheduler.advance(5, TimeUnit.SECONDS);
+    assertEquals(List.of("a"), channel.sent);
+
+    // the failed text isn't treated as what the channel shows
+    channel.failing = false;
+    this.updater.update(channel, "a");
+    this.scheduler.advance(5, TimeUnit.SECONDS);
+    assertEquals(List.of("a", "a"), channel.sent);
+
+    // but a successful one is
+    this.updater.update(channel, "a");
+    this.scheduler.advance(5, TimeUnit.SECONDS);
+    assertEquals(List.of("a", "a"), channel.sent);
+  }
+
+  @Test
+  void shouldDropPendingOnCancelAll() {
+    var channel = new FakeChannel(null);
+
+    this.updater.update(channel, "a");
+    this.updater.cancelAll();
+    this.scheduler.advance(1, TimeUnit.MINUTES);
+
+    assertTrue(channel.sent.isEmpty());
+  }
+}
@@ -0,0 +1,87 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkScannerTest {
+  // the pattern the scanner replaced
+  private static final Pattern LINK_REGEX =
+    Pattern.compile("[^:/?#\\s]+:(?://)?(?:[^?#\\s]+)?(?:\\?[^#\\s]+)?(?:#\\S+)?");
+
+  private static final List<String> CORPUS = List.of(
+    "",
+    "no links here",
+    "https://example.com",
+    "look at https://example.com/path/to?q=1&b=2#frag and http://x.y",
+    "mailto:someone@example.com",
+    "note: this is not a link but matches anyway",
+    "a:b?#c:d",
+    "a:b?",
+    "a:b#",
+    "a:b?c#",
+    "a:b?c#d e:f",
+    "::::",
+    "a::b",
+    "//a:b",
+    "?a:b #c:d",
+    "http://a.b/c?d?e#f#g h",
+    "x:\ty:\nz:",
+    "steam://run/123 minecraft:stone",
+    "(https://example.com)",
+    "ünïcödé:wörks too",
+    "ends with colon:"
+  );
+
+  private static List<String> regexLinks(String text) {
+    var links = new ArrayList<String>();
+    var matcher = LINK_REGEX.matcher(text);
+    while (matcher.find()) links.add(matcher.start() + ":" + matcher.group());
+    return links;
+  }
+
+  private static List<String> scannerLinks(String text) {
+    var links = new ArrayList<String>();
+    var scanner = new LinkScanner(text);
+    while (scanner.find()) links.add(scanner.start() + ":" + text.substring(scanner.start(), scanner.end()));
+    return links;
+  }
+
+  @Test
+  void shouldMatchTheRegexOnTheCorpus() {
+    for (var text : CORPUS) {
+      assertEquals(regexLinks(text), scannerLinks(text), text);
+    }
+  }
+
+  @Test
+  void shouldMatchTheRegexOnRandomInput() {
+    var random = new Random(42);
+    var alphabet = "ab:/?#  \t.-_=&";
+
+    for (var n = 0; n < 20000; n++) {
+      var text = new StringBuilder();
+      var length = random.nextInt(24);
+      for (var i = 0; i < length; i++) {
+        text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+
+      var input = text.toString();
+      assertEquals(regexLinks(input), scannerLinks(input), input);
+    }
+  }
+
+  @Test
+  void shouldScanPathologicalInputInLinearTime() {
+    // a long run without a colon made the regex retry from every position
+    var input = "a".repeat(200_000) + " " + "a/".repeat(100_000);
+
+    assertTimeoutPreemptively(Duration.ofSeconds(1), () -> assertFalse(new LinkScanner(input).find()));
+  }
+}
@@ -0,0 +1,99 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderedExecutorTest {
+  @Test
+  void shouldKeepOrderPerKey() {
+    var executor = new OrderedExecutor("test", 4, () -> 0);
+    var results = new HashMap<String, List<Integer>>();
+
+    for (var key : List.of("a", "b", "c")) {
+      results.put(key, Collections.synchronizedList(new ArrayList<>()));
+    }
+
+    for (var i = 0; i < 1000; i++) {
+      for (var key : List.of("a", "b", "c")) {
+        var value = i;
+        assertTrue(executor.execute(key, () -> results.get(key).add(value)));
+      }
+    }
+
+    executor.shutdown(10, TimeUnit.SECONDS);
+
+    for (var entry : results.entrySet()) {
+      var values = entry.getValue();
+      assertEquals(1000, values.size(), entry.getKey());
+
+      for (var i = 0; i < values.size(); i++) {
+        assertEquals(i, values.get(i), entry.getKey());
+      }
+    }
+
+    assertEquals(0, executor.pendingCount());
+  }
+
+  @Test
+  void shouldRejectWhenFull() throws InterruptedException {
+    var executor = new OrderedExecutor("test", 1, () -> 2);
+    var started = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+
+    // blocks the only worker so everything after it waits
+    assertTrue(executor.execute("a", () -> {
+      started.countDown();
+      await(release);
+    }));
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+
+    assertTrue(executor.execute("a", () -> {}));
+    assertFalse(executor.execute("b", () -> {}));
+    assertEquals(1, executor.rejectedCount());
+
+    release.countDown();
+    executor.shutdown(10, TimeUnit.SECONDS);
+
+    assertEquals(0, executor.pendingCount());
+  }
+
+  @Test
+  void shouldRunOnWorkersAfterShutdown() throws InterruptedException {
+    var executor = new OrderedExecutor("test", 1, () -> 0);
+
+    assertTrue(executor.execute("a", () -> {}));
+    executor.shutdown(10, TimeUnit.SECONDS);
+
+    // a new session reuses the executor, its tasks must not fall back to the submitting thread
+    var caller = Thread.currentThread();
+    var ranOn = new Thread[1];
+    var done = new CountDownLatch(1);
+
+    assertTrue(executor.execute("a", () -> {
+      ranOn[0] = Thread.currentThread();
+      done.countDown();
+    }));
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+
+    assertNotSame(caller, ranOn[0]);
+    assertTrue(ranOn[0].getName().startsWith("test-"));
+
+    executor.shutdown(10, TimeUnit.SECONDS);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundSanitizerTest {
+  private static final Pattern EVERYONE_AND_HERE = Pattern.compile("@(?<ping>everyone|here)");
+  private static final Pattern RAW_PING = Pattern.compile("<@(?<ping>[!&]?\\d+)>");
+
+  private static final List<String> NAMES = List.of("foo", "foobar", "Steve", "bar_baz", "ever", "heretic", "a.b");
+
+  private static final List<String> CORPUS = List.of(
+    "",
+    "hello world",
+    "hi @Foo and @STEVE, @foobar!",
+    "@foobarbaz @fo @foo",
+    "@everyone look",
+    "@here @heretic @hereafter",
+    "@@everyone",
+    "email me at someone@here.com",
+    "<@123456789012345678> hey",
+    "<@!123> <@&456> <@#789> <@> <@!> <@12 > <@12",
+    "<<@1>> <@<@2>>",
+    "@everyone <@1> @foo @here",
+    "@ever @everyone",
+    "@a.b @aXb",
+    "**bold** _it_ ~~strike~~ `code` ||spoiler|| \\escaped",
+    "> quote",
+    "# heading\n- list\n> quote",
+    "a > b # c - d",
+    "<@1>*@foo*_@here_",
+    "ünïcödé @fOO ✓"
+  );
+
+  private static PatternTrie<String> mentions() {
+    var builder = PatternTrie.<String>builder();
+    for (var name : NAMES) {
+      builder.add("@" + name, "<@" + Math.abs(name.hashCode()) + ">");
+    }
+    return builder.build();
+  }
+
+  // the separate passes this replaced
+  private static String reference(String text, PatternTrie<String> mentions, boolean allowEveryone) {
+    text = RAW_PING.matcher(text).replaceAll("<@\u200B${ping}>");
+
+    if (mentions != null) {
+      // longest names first, so the alternation picks the longest name at each position like the trie does
+      var alternation = NAMES
+        .stream()
+        .sorted(Comparator.comparingInt(String::length).reversed())
+        .map(name -> Pattern.quote("@" + name))
+        .collect(Collectors.joining("|"));
+
+      text = Pattern
+        .compile(alternation, Pattern.CASE_INSENSITIVE)
+        .matcher(text)
+        .replaceAll(m -> Matcher.quoteReplacement(mentions.longestAt(m.group(), 0).value()));
+    }
+
+    if (!allowEveryone) {
+      text = EVERYONE_AND_HERE.matcher(text).replaceAll("@\u200B${ping}");
+    }
+
+    return text;
+  }
+
+  @Test
+  void shouldMatchTheSeparatePassesOnTheCorpus() {
+    var mentions = mentions();
+
+    for (var text : CORPUS) {
+      for (var allowEveryone : new boolean[]{false, true}) {
+        assertEquals(
+          reference(text, mentions, allowEveryone),
+          OutboundSanitizer.sanitize(text, mentions, allowEveryone, false),
+          text
+        );
+        assertEquals(
+          reference(text, null, allowEveryone),
+          OutboundSanitizer.sanitize(text, null, allowEveryone, false),
+          text
+        );
+      }
+    }
+  }
+
+  @Test
+  void shouldMatchTheSeparatePassesOnRandomInput() {
+    var mentions = mentions();
+    var random = new Random(42);
+    var pieces = new String[]{
+      "@", "<", ">", "<@", "!", "&", "1", "23", " ", "foo", "bar", "everyone", "here", "ever", "_baz", "x"
+    };
+
+    for (var n = 0; n < 5000; n++) {
+      var text = new StringBuilder();
+      var length = random.nextInt(12);
+      for (var i = 0; i < length; i++) {
+        text.append(pieces[random.nextInt(pieces.length)]);
+      }
+
+      var input = text.toString();
+      var allowEveryone = random.nextBoolean();
+      assertEquals(
+        reference(input, mentions, allowEveryone),
+        OutboundSanitizer.sanitize(input, mentions, allowEveryone, false),
+        input
+      );
+    }
+  }
+
+  @Test
+  void shouldReturnTheSameInstanceWhenNothingChanges() {
+    var text = "nothing to see here";
+    assertSame(text, OutboundSanitizer.sanitize(text, mentions(), false, true));
+  }
+
+  @Test
+  void shouldEscapeMarkdown() {
+    assertEquals(
+      "\\*\\*bold\\*\\* \\_it\\_ \\~\\~s\\~\\~ \\`c\\` \\|\\|s\\|\\| \\\\",
+      OutboundSanitizer.sanitize("**bold** _it_ ~~s~~ `c` ||s|| \\", null, false, true)
+    );
+    assertEquals("\\> quote > not", OutboundSanitizer.sanitize("> quote > not", null, false, true));
+    assertEquals("a\n\\# b\n\\- c", OutboundSanitizer.sanitize("a\n# b\n- c", null, false, true));
+  }
+
+  @Test
+  void shouldNotEscapeInsideMentionsAndPings() {
+    var mentions = PatternTrie.<String>builder().add("@bar_baz", "<@1>").build();
+
+    assertEquals("<@1> \\_ <@\u200B2>", OutboundSanitizer.sanitize("@bar_baz _ <@2>", mentions, false, true));
+  }
+}
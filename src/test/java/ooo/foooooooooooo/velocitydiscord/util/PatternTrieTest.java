@@ -0,0 +1,77 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatternTrieTest {
+  private static PatternTrie<String> trie(String... patternsAndValues) {
+    var builder = PatternTrie.<String>builder();
+
+    for (var i = 0; i < patternsAndValues.length; i += 2) {
+      builder.add(patternsAndValues[i], patternsAndValues[i + 1]);
+    }
+
+    return builder.build();
+  }
+
+  @Test
+  void shouldMatchLikeTheRegexItReplaces() {
+    var names = List.of("foo", "bar_baz", "Steve", "alex99");
+    var builder = PatternTrie.<String>builder();
+    for (var name : names) {
+      builder.add("@" + name, name);
+    }
+    var trie = builder.build();
+
+    for (var text : List.of("hi @Foo and @STEVE, @alex99!", "@bar_baz@foo", "no mentions", "@fo @foox", "")) {
+      for (var i = 0; i < text.length(); i++) {
+        var match = trie.longestAt(text, i);
+
+        String expected = null;
+        for (var name : names) {
+          var matcher = Pattern.compile(Pattern.quote("@" + name), Pattern.CASE_INSENSITIVE).matcher(text);
+          if (matcher.find(i) && matcher.start() == i) expected = name;
+        }
+
+        assertEquals(expected, match == null ? null : match.value(), text + " at " + i);
+      }
+    }
+  }
+
+  @Test
+  void shouldPreferLongestMatch() {
+    var trie = trie("@foo", "short", "@foobar", "long");
+
+    assertEquals(new PatternTrie.Match<>(7, "long"), trie.longestAt("@foobar!", 0));
+    assertEquals(new PatternTrie.Match<>(4, "short"), trie.longestAt("@foo!", 0));
+    assertEquals(new PatternTrie.Match<>(4, "short"), trie.longestAt("@fooba", 0));
+  }
+
+  @Test
+  void shouldOnlyMatchAtStart() {
+    var trie = trie("bcd", "x");
+
+    assertNull(trie.longestAt("abcd", 0));
+    assertEquals(new PatternTrie.Match<>(4, "x"), trie.longestAt("abcd", 1));
+    assertNull(trie.longestAt("abc", 1));
+  }
+
+  @Test
+  void shouldKeepFirstValueForDuplicates() {
+    var trie = trie("@Foo", "first", "@foo", "second");
+
+    assertEquals("first", trie.longestAt("@FOO", 0).value());
+  }
+
+  @Test
+  void shouldHandleEmptyTrie() {
+    var trie = PatternTrie.<String>builder().add("", "ignored").build();
+
+    assertTrue(trie.isEmpty());
+    assertNull(trie.longestAt("@foo", 0));
+  }
+}
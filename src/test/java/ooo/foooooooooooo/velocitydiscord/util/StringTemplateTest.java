@@ -0,0 +1,235 @@
+package ooo.foooooooooooo.velocitydiscord.util;
+
+import ooo.foooooooooooo.config.TestUtils;
+import ooo.foooooooooooo.velocitydiscord.config.DiscordChatConfig;
+import ooo.foooooooooooo.velocitydiscord.config.DiscordConfig;
+import ooo.foooooooooooo.velocitydiscord.config.MinecraftConfig;
+import ooo.foooooooooooo.velocitydiscord.config.WebhookConfig;
+import ooo.foooooooooooo.velocitydiscord.config.commands.ListCommandConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringTemplateTest {
+  StringTemplateTest() {
+    TestUtils.setLogLevel();
+  }
+
+  // values used for every placeholder in the corpus, none of them contain placeholders themselves
+  private static final Map<String, String> VALUES = new LinkedHashMap<>();
+
+  static {
+    VALUES.put("username", "fooooooooooooooo");
+    VALUES.put("uuid", "069a79f4-44e9-4726-a5be-fca90e38aaf5");
+    VALUES.put("server", "lobby");
+    VALUES.put("message", "hello <world> & \"friends\" $1 \\n");
+    VALUES.put("prefix", "[Admin] ");
+    VALUES.put("current", "survival");
+    VALUES.put("previous", "lobby");
+    VALUES.put("displayname", "Foo");
+    VALUES.put("death_message", "fooooooooooooooo fell from a high place");
+    VALUES.put("advancement_title", "Stone Age");
+    VALUES.put("advancement_description", "Mine stone with your new pickaxe");
+    VALUES.put("amount", "42");
+    VALUES.put("players", "42");
+    VALUES.put("max_players", "500");
+    VALUES.put("player_list", "Players: a, b, c");
+    VALUES.put("hostname", "0.0.0.0");
+    VALUES.put("port", "25565");
+    VALUES.put("uptime", "1d 2h");
+    VALUES.put("name", "Lobby");
+    VALUES.put("server_name", "Lobby");
+    VALUES.put("online_players", "3");
+    VALUES.put("discord_color", "#7289da");
+    VALUES.put("role_color", "#ff00ff");
+    VALUES.put("display_name", "Foo Bar");
+    VALUES.put("nickname", "foo");
+    VALUES.put("discord_chunk", "<dark_gray>[<#7289da>Discord<dark_gray>]<reset>");
+    VALUES.put("username_chunk", "<#ff00ff>foo<reset>");
+    VALUES.put("role_prefix", "");
+    VALUES.put("attachments", "");
+    VALUES.put("url", "https://example.com/a?b=c#d");
+    VALUES.put("attachment_color", "#4abdff");
+    VALUES.put("link_color", "#4abdff");
+    VALUES.put("ping", "12");
+    VALUES.put("", "empty");
+  }
+
+  private static List<String> corpus() {
+    var corpus = new ArrayList<String>();
+
+    var chat = new DiscordChatConfig(null);
+    chat.MESSAGE_FORMAT.ifPresent(corpus::add);
+    chat.DEATH_FORMAT.ifPresent(corpus::add);
+    chat.ADVANCEMENT_FORMAT.ifPresent(corpus::add);
+    chat.JOIN_FORMAT.ifPresent(corpus::add);
+    chat.LEAVE_FORMAT.ifPresent(corpus::add);
+    chat.DISCONNECT_FORMAT.ifPresent(corpus::add);
+    chat.SERVER_SWITCH_FORMAT.ifPresent(corpus::add);
+    chat.SERVER_START_FORMAT.ifPresent(corpus::add);
+    chat.SERVER_STOP_FORMAT.ifPresent(corpus::add);
+
+    var discord = new DiscordConfig(null);
+    discord.ACTIVITY_FORMAT.ifPresent(corpus::add);
+    discord.TOPIC_FORMAT.ifPresent(corpus::add);
+    discord.TOPIC_SERVER_FORMAT.ifPresent(corpus::add);
+    discord.TOPIC_SERVER_OFFLINE_FORMAT.ifPresent(corpus::add);
+    corpus.add(discord.TOPIC_PLAYER_LIST_FORMAT);
+
+    var webhook = new WebhookConfig(null);
+    corpus.add(webhook.AVATAR_URL);
+    corpus.add(webhook.USERNAME);
+
+    var list = new ListCommandConfig(null);
+    corpus.add(list.SERVER_FORMAT);
+    corpus.add(list.PLAYER_FORMAT);
+
+    var minecraft = new MinecraftConfig(null);
+    corpus.add(minecraft.DISCORD_CHUNK_FORMAT);
+    corpus.add(minecraft.USERNAME_CHUNK_FORMAT);
+    corpus.add(minecraft.MESSAGE_FORMAT);
+    corpus.add(minecraft.ATTACHMENT_FORMAT);
+    minecraft.LINK_FORMAT.ifPresent(corpus::add);
+
+    // edge cases
+    corpus.add("");
+    corpus.add("no placeholders at all");
+    corpus.add("{username}");
+    corpus.add("{username}{username}{username}");
+    corpus.add("{username}: {message} ({username})");
+    corpus.add("{unknown} {username} {also_unknown}");
+    corpus.add("{");
+    corpus.add("}");
+    corpus.add("}{");
+    corpus.add("{}");
+    corpus.add("{{username}}");
+    corpus.add("{ {username} }");
+    corpus.add("{user{username}");
+    corpus.add("{username");
+    corpus.add("username}");
+    corpus.add("{server[lobby]} {server[survival]}");
+    corpus.add("# {server} запущен");
+    corpus.add("**{username}** выполнил достижение __{advancement_title}__**\n_{advancement_description}_");
+    corpus.add("""
+      Онлайн: {players}
+      {player_list}
+      Время: {uptime}""");
+
+    return corpus;
+  }
+
+  // the previous implementation, one replace pass per variable
+  private static String legacyRender(String template, Map<String, String> variables) {
+    var result = template;
+
+    for (var entry : variables.entrySet()) {
+      result = result.replace("{" + entry.getKey() + "}", entry.getValue());
+    }
+
+    return result;
+  }
+
+  @Test
+  void shouldMatchLegacyRenderingForCorpus() {
+    for (var format : corpus()) {
+      var template = new StringTemplate(format);
+      for (var entry : VALUES.entrySet()) {
+        template.add(entry.getKey(), entry.getValue());
+      }
+
+      assertEquals(legacyRender(format, VALUES), template.toString(), () -> "format: " + format);
+    }
+  }
+
+  @Test
+  void shouldMatchLegacyRenderingWithMissingValues() {
+    var partial = Map.of("username", "foo", "server", "lobby");
+
+    for (var format : corpus()) {
+      var template = new StringTemplate(format);
+      for (var entry : partial.entrySet()) {
+        template.add(entry.getKey(), entry.getValue());
+      }
+
+      assertEquals(legacyRender(format, partial), template.toString(), () -> "format: " + format);
+    }
+  }
+
+  @Test
+  void shouldMatchLegacyRenderingForManyServers() {
+    var format = new StringBuilder("{players}/{max_players}\n");
+    var values = new LinkedHashMap<String, String>();
+    values.put("players", "10");
+    values.put("max_players", "100");
+
+    for (var i = 0; i < 150; i++) {
+      format.append("{server[backend-").append(i).append("]}\n");
+      values.put("server[backend-" + i + "]", "backend-" + i + ": " + i + "/100");
+    }
+
+    var template = new StringTemplate(format.toString());
+    for (var entry : values.entrySet()) {
+      template.add(entry.getKey(), entry.getValue());
+    }
+
+    assertEquals(legacyRender(format.toString(), values), template.toString());
+  }
+
+  @Test
+  void shouldFormatPrimitives() {
+    var template = new StringTemplate("{int} {bool} {double}").add("int", 5).add("bool", true).add("double", 1.5);
+
+    assertEquals("5 true 1.5", template.toString());
+  }
+
+  @Test
+  void shouldKeepValuesAfterReplace() {
+    var template = new StringTemplate("{message} {attachments}").add("attachments", "[a]");
+
+    template.replace(" {attachments}", "{attachments}").add("message", "");
+
+    assertEquals("[a]", template.toString());
+  }
+
+  @Test
+  void shouldNotSubstituteIntoValues() {
+    // values are never scanned for placeholders, so user content can't pull in other variables
+    var template = new StringTemplate("{username}: {message}").add("message", "{username}").add("username", "foo");
+
+    assertEquals("foo: {username}", template.toString());
+  }
+
+  @Test
+  void shouldReportUsedPlaceholders() {
+    var template = Template.of("{a} {b} {a}");
+
+    assertEquals(2, template.slotCount());
+    assertTrue(template.uses("a"));
+    assertTrue(template.uses("b"));
+    assertFalse(template.uses("c"));
+    assertSame(template, Template.of("{a} {b} {a}"));
+  }
+
+  @Test
+  void shouldOnlyComputeUsedValues() {
+    var calls = new int[1];
+
+    var rendered = new StringTemplate("{players} online")
+      .add("players", () -> {
+        calls[0]++;
+        return "3";
+      })
+      .add("player_list", () -> {
+        throw new AssertionError("unused placeholder was computed");
+      })
+      .toString();
+
+    assertEquals("3 online", rendered);
+    assertEquals(1, calls[0]);
+  }
+}